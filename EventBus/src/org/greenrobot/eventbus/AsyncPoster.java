@@ -12,26 +12,141 @@
  */
 package org.greenrobot.eventbus;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
 /**
  * Posts events in background.
+ * <p/>
+ * If the executor is a {@link ForkJoinPool} and the queue is neither bounded nor prioritized, each pending post is
+ * carried by its own task instead of the shared queue. Tasks enqueued by a worker thread of the pool (e.g. an ASYNC
+ * subscriber posting further events) are pushed to the worker's local queue and may be stolen by idle workers. With a
+ * queue capacity or prioritized deliveries, the pool's tasks take the pending posts from the shared queue like with
+ * other executors, so capacity, backpressure policy and priorities apply.
  * 
  * @author Markus
  */
-class AsyncPoster implements Runnable {
+class AsyncPoster implements Runnable, Poster {
 
 	private final PendingPostQueue queue;
 	private final EventBus eventBus;
+	private final ExecutorService executorService;
+	/** The executor if it is a ForkJoinPool carrying pending posts in its tasks, otherwise null. */
+	private final ForkJoinPool forkJoinPool;
+	/**
+	 * Marks the threads delivering events of this poster, which must not wait for capacity they would free themselves;
+	 * null unless the queue blocks producers.
+	 */
+	private final ThreadLocal<Boolean> deliveringThread;
 
-	AsyncPoster(EventBus eventBus) {
+	AsyncPoster(EventBus eventBus, ExecutorService executorService) {
 		this.eventBus = eventBus;
-		queue = new PendingPostQueue();
+		this.executorService = executorService;
+		queue = eventBus.createPendingPostQueue();
+		forkJoinPool = executorService instanceof ForkJoinPool && queue.isPlain() ?
+				(ForkJoinPool) executorService : null;
+		deliveringThread = queue.isBlocking() ? new ThreadLocal<Boolean>() : null;
+	}
+
+	@Override
+	public void enqueue(Subscription subscription, Object event, PostFuture tracker) {
+		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+		if (forkJoinPool != null) {
+			submit(pendingPost);
+			return;
+		}
+		enqueue(pendingPost);
 	}
 
-	public void enqueue(Subscription subscription, Object event) {
-		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event);
-		queue.enqueue(pendingPost);
+	private void enqueue(PendingPost pendingPost) {
+		boolean mayBlock = deliveringThread == null || deliveringThread.get() == null;
+		PendingPost dropped = queue.enqueue(pendingPost, mayBlock);
+		if (dropped != null) {
+			// Either the new pending post was not queued or it replaced a dropped one: no additional task
+			eventBus.dropPendingPosts(dropped);
+			return;
+		}
 		//从线程池中获取一个线程并执行
-		eventBus.getExecutorService().execute(this);
+		startTasks(1);
+	}
+
+	@Override
+	public boolean tryEnqueue(Subscription subscription, Object event, PostFuture tracker) {
+		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+		if (forkJoinPool != null) {
+			submit(pendingPost);
+			return true;
+		}
+		if (!queue.tryEnqueue(pendingPost)) {
+			PendingPost.releasePendingPost(pendingPost);
+			return false;
+		}
+		startTasks(1);
+		return true;
+	}
+
+	/** Enqueues all pending posts of the batch at once; still, each one is executed by its own task. */
+	@Override
+	public void enqueueAll(PendingPostBatch batch) {
+		if (forkJoinPool != null) {
+			PendingPost pendingPost = batch.head;
+			while (pendingPost != null) {
+				PendingPost next = pendingPost.next;
+				pendingPost.next = null;
+				submit(pendingPost);
+				pendingPost = next;
+			}
+			return;
+		}
+		if (deliveringThread != null) {
+			// Waiting for capacity requires the tasks of the pending posts queued before
+			PendingPost pendingPost = batch.head;
+			while (pendingPost != null) {
+				PendingPost next = pendingPost.next;
+				pendingPost.next = null;
+				enqueue(pendingPost);
+				pendingPost = next;
+			}
+			return;
+		}
+		PendingPost dropped = queue.enqueueAll(batch.head, batch.tail, true);
+		int taskCount = batch.size;
+		for (PendingPost pendingPost = dropped; pendingPost != null; pendingPost = pendingPost.next) {
+			taskCount--;
+		}
+		try {
+			startTasks(taskCount);
+		} finally {
+			// Reported last as it may throw: the accepted pending posts have their tasks already
+			if (dropped != null) {
+				eventBus.dropPendingPosts(dropped);
+			}
+		}
+	}
+
+	/** Starts a task for each of the given number of pending posts queued last. */
+	private void startTasks(int taskCount) {
+		for (int i = 0; i < taskCount; i++) {
+			try {
+				//从线程池中获取一个线程并执行
+				executorService.execute(this);
+			} catch (RejectedExecutionException e) {
+				// Remove a pending post for each missing task; which ones does not matter, each task polls the next one
+				PendingPost rejected = null;
+				for (int j = i; j < taskCount; j++) {
+					PendingPost pendingPost = queue.poll();
+					if (pendingPost != null) {
+						pendingPost.next = rejected;
+						rejected = pendingPost;
+					}
+				}
+				eventBus.rejectPendingPosts(rejected, e);
+			}
+		}
 	}
 
 	@Override
@@ -40,8 +155,53 @@ class AsyncPoster implements Runnable {
 		if (pendingPost == null) {
 			throw new IllegalStateException("No pending post available");
 		}
-		//反射执行订阅者的响应方法
-		eventBus.invokeSubscriber(pendingPost);
+		if (deliveringThread != null) {
+			deliveringThread.set(Boolean.TRUE);
+		}
+		try {
+			//反射执行订阅者的响应方法
+			eventBus.invokeSubscriber(pendingPost);
+		} finally {
+			if (deliveringThread != null) {
+				deliveringThread.remove();
+			}
+		}
+	}
+
+	private void submit(PendingPost pendingPost) {
+		ForkJoinDelivery delivery = new ForkJoinDelivery(eventBus, pendingPost);
+		if (ForkJoinTask.getPool() == forkJoinPool) {
+			// Called in a worker thread of the pool: push to its local queue
+			delivery.fork();
+		} else {
+			try {
+				forkJoinPool.execute(delivery);
+			} catch (RejectedExecutionException e) {
+				eventBus.rejectPendingPosts(pendingPost, e);
+			}
+		}
+	}
+
+	private static final class ForkJoinDelivery extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final EventBus eventBus;
+		private final PendingPost pendingPost;
+
+		ForkJoinDelivery(EventBus eventBus, PendingPost pendingPost) {
+			this.eventBus = eventBus;
+			this.pendingPost = pendingPost;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				eventBus.invokeSubscriber(pendingPost);
+			} catch (RuntimeException e) {
+				// Would be kept silently in the task otherwise
+				eventBus.getLogger().log(Level.SEVERE, "Async delivery failed", e);
+			}
+		}
 	}
 
 }
@@ -12,46 +12,106 @@
  */
 package org.greenrobot.eventbus;
 
-import android.util.Log;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
 
 /**
  * Posts events in background.
  * 
  * @author Markus
  */
-final class BackgroundPoster implements Runnable {
+final class BackgroundPoster implements Runnable, Poster {
 
+	/** Also guards the state of this poster, see {@link PendingPostQueue#enqueue(PendingPost, boolean)}. */
 	private final PendingPostQueue queue;
 	private final EventBus eventBus;
+	private final ExecutorService executorService;
+	/** Null unless the watchdog is enabled. */
+	private final PosterWatchdog.Slot watchdogSlot;
 
 	private volatile boolean executorRunning;
+	/** The thread delivering the queued events, if running. */
+	private volatile Thread consumerThread;
 
-	BackgroundPoster(EventBus eventBus) {
+	BackgroundPoster(EventBus eventBus, ExecutorService executorService, PosterWatchdog.Slot watchdogSlot) {
 		this.eventBus = eventBus;
-		queue = new PendingPostQueue();
+		this.executorService = executorService;
+		this.watchdogSlot = watchdogSlot;
+		queue = eventBus.createPendingPostQueue();
 	}
 
-	public void enqueue(Subscription subscription, Object event) {
-		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event);
-		synchronized (this) {
-			queue.enqueue(pendingPost);
-			//启动执行
+	@Override
+	public void enqueue(Subscription subscription, Object event, PostFuture tracker) {
+		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+		synchronized (queue) {
+			// The consumer must not wait for capacity only it can free
+			PendingPost dropped = queue.enqueue(pendingPost, Thread.currentThread() != consumerThread);
+			try {
+				//启动执行
+				if (!executorRunning && dropped != pendingPost) {
+					//从线程池中获取一个线程并执行
+					startExecutor();
+				}
+			} finally {
+				if (dropped != null) {
+					eventBus.dropPendingPosts(dropped);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean tryEnqueue(Subscription subscription, Object event, PostFuture tracker) {
+		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+		synchronized (queue) {
+			if (!queue.tryEnqueue(pendingPost)) {
+				PendingPost.releasePendingPost(pendingPost);
+				return false;
+			}
+			if (!executorRunning) {
+				startExecutor();
+			}
+		}
+		return true;
+	}
+
+	/** Enqueues all pending posts of the batch and starts at most one executor task. */
+	@Override
+	public void enqueueAll(PendingPostBatch batch) {
+		synchronized (queue) {
+			// Started before enqueuing, as the consumer may have to free capacity for the batch
 			if (!executorRunning) {
-				executorRunning = true;
-				//从线程池中获取一个线程并执行
-				eventBus.getExecutorService().execute(this);
+				startExecutor();
+			}
+			PendingPost dropped = queue.enqueueAll(batch.head, batch.tail, Thread.currentThread() != consumerThread);
+			if (dropped != null) {
+				eventBus.dropPendingPosts(dropped);
 			}
 		}
 	}
 
+	/** Must be called while holding the lock of the queue. */
+	private void startExecutor() {
+		executorRunning = true;
+		try {
+			executorService.execute(this);
+		} catch (RejectedExecutionException e) {
+			executorRunning = false;
+			// Nobody would deliver the queued events
+			eventBus.rejectPendingPosts(queue.pollAll(), e);
+		}
+	}
+
 	@Override
 	public void run() {
+		consumerThread = Thread.currentThread();
 		try {
 			try {
 				while (true) {
 					PendingPost pendingPost = queue.poll(1000);
 					if (pendingPost == null) {
-						synchronized (this) {
+						synchronized (queue) {
 							// Check again, this time in synchronized
 							pendingPost = queue.poll();
 							if (pendingPost == null) {
@@ -61,12 +121,25 @@ final class BackgroundPoster implements Runnable {
 						}
 					}
 					//反射执行订阅者响应方法
-					eventBus.invokeSubscriber(pendingPost);
+					if (watchdogSlot != null) {
+						watchdogSlot.begin(pendingPost.subscription);
+					}
+					try {
+						eventBus.invokeSubscriber(pendingPost);
+					} finally {
+						if (watchdogSlot != null) {
+							watchdogSlot.end();
+						}
+					}
 				}
 			} catch (InterruptedException e) {
-				Log.w("Event", Thread.currentThread().getName() + " was interruppted", e);
+				eventBus.getLogger().log(Level.WARNING, Thread.currentThread().getName() + " was interruppted", e);
 			}
 		} finally {
+			if (consumerThread == Thread.currentThread()) {
+				// Not yet taken over by a new run
+				consumerThread = null;
+			}
 			executorRunning = false;
 		}
 	}
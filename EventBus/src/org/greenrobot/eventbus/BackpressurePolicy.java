@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * What a bounded poster queue does with a new delivery once it is full, see
+ * {@link EventBusBuilder#queueCapacity(int, BackpressurePolicy)}. Dropped deliveries are recorded as dead letters if
+ * enabled.
+ */
+public enum BackpressurePolicy {
+    /**
+     * The posting thread waits until the queue has capacity. Threads delivering the queue's events (the main thread,
+     * the background thread or async threads) never wait for their own queue; their deliveries exceed the capacity
+     * instead.
+     */
+    BLOCK,
+
+    /** The new delivery is dropped. */
+    DROP_NEWEST,
+
+    /** The oldest queued delivery (of the lowest priority, if prioritized) is dropped to make room. */
+    DROP_OLDEST,
+
+    /** The new delivery is dropped and posting throws an {@link EventBusException}. */
+    FAIL
+}
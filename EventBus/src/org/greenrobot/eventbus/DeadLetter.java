@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * An event that could not be delivered, recorded by the {@link DeadLetterStore}: either no subscriber was registered
+ * for it, or a subscriber threw an exception.
+ */
+public final class DeadLetter {
+    /** Position in the store; increases by one for each recorded dead letter. */
+    public final long sequence;
+
+    /** Time the dead letter was recorded ({@link System#currentTimeMillis()}). */
+    public final long timeMillis;
+
+    /** The event that could not be delivered. */
+    public final Object event;
+
+    /** The subscriber that threw {@link #throwable}, or null if there was no subscriber for the event. */
+    public final Object subscriber;
+
+    /** The Throwable thrown by the subscriber, or null if there was no subscriber for the event. */
+    public final Throwable throwable;
+
+    /** The failed subscription, or null if there was no subscriber for the event. */
+    final Subscription subscription;
+
+    DeadLetter(long sequence, Object event, Subscription subscription, Throwable throwable) {
+        this.sequence = sequence;
+        this.timeMillis = System.currentTimeMillis();
+        this.event = event;
+        this.subscription = subscription;
+        this.subscriber = subscription != null ? subscription.subscriber : null;
+        this.throwable = throwable;
+    }
+
+    /** True if a subscriber failed; false if there was no subscriber for the event. */
+    public boolean isDeliveryFailure() {
+        return subscription != null;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring of the most recent {@link DeadLetter}s of an EventBus; enabled by
+ * {@link EventBusBuilder#deadLetterCapacity(int)}. Recording a dead letter replaces posting a
+ * {@link NoSubscriberEvent} or a {@link SubscriberExceptionEvent}, which would cost a complete dispatch each.
+ * <p/>
+ * Once the ring is full, the oldest dead letters are overwritten. Reading is best effort: a dead letter recorded
+ * concurrently may be missed.
+ */
+public final class DeadLetterStore {
+    private final EventBus eventBus;
+    private final AtomicReferenceArray<DeadLetter> ring;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    /** Dead letters below this sequence were taken by {@link #drain()}. */
+    private final AtomicLong drainedSequence = new AtomicLong();
+
+    DeadLetterStore(EventBus eventBus, int capacity) {
+        if (capacity <= 0) {
+            throw new EventBusException("Capacity must be positive: " + capacity);
+        }
+        int powerOfTwo = Integer.highestOneBit(capacity);
+        if (powerOfTwo < capacity) {
+            powerOfTwo <<= 1;
+        }
+        this.eventBus = eventBus;
+        ring = new AtomicReferenceArray<>(powerOfTwo);
+        mask = powerOfTwo - 1;
+    }
+
+    void add(Object event, Subscription subscription, Throwable throwable) {
+        long sequence = nextSequence.getAndIncrement();
+        ring.set((int) (sequence & mask), new DeadLetter(sequence, event, subscription, throwable));
+    }
+
+    /** Total number of dead letters recorded so far, including overwritten ones. */
+    public long getTotalCount() {
+        return nextSequence.get();
+    }
+
+    /** The dead letters currently in the ring (not drained yet), oldest first. */
+    public List<DeadLetter> getDeadLetters() {
+        return collect(drainedSequence.get(), nextSequence.get());
+    }
+
+    /** Removes and returns the dead letters currently in the ring, oldest first. */
+    public List<DeadLetter> drain() {
+        long to = nextSequence.get();
+        long from;
+        do {
+            from = drainedSequence.get();
+            if (from >= to) {
+                return new ArrayList<>();
+            }
+        } while (!drainedSequence.compareAndSet(from, to));
+        return collect(from, to);
+    }
+
+    private List<DeadLetter> collect(long from, long to) {
+        long start = Math.max(from, to - ring.length());
+        List<DeadLetter> deadLetters = new ArrayList<>((int) Math.max(0, to - start));
+        for (long sequence = start; sequence < to; sequence++) {
+            DeadLetter deadLetter = ring.get((int) (sequence & mask));
+            // Skip slots not written yet or already overwritten
+            if (deadLetter != null && deadLetter.sequence == sequence) {
+                deadLetters.add(deadLetter);
+            }
+        }
+        return deadLetters;
+    }
+
+    /**
+     * Drains the ring and redelivers the dead letters asynchronously using the EventBus' executor: events without
+     * subscribers are posted again; failed deliveries are retried for the failed subscriber only (if it is still
+     * registered), respecting its {@link ThreadMode}.
+     */
+    public void redeliverAsync() {
+        final List<DeadLetter> deadLetters = drain();
+        if (deadLetters.isEmpty()) {
+            return;
+        }
+        eventBus.getExecutorService().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (DeadLetter deadLetter : deadLetters) {
+                    if (deadLetter.subscription != null) {
+                        eventBus.redeliver(deadLetter.subscription, deadLetter.event);
+                    } else {
+                        eventBus.post(deadLetter.event);
+                    }
+                }
+            }
+        });
+    }
+}
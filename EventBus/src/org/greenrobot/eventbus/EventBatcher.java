@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates the events of a batch subscription ({@link Subscribe#batchSize()}). A batch is handed over once it is
+ * full or once its first event waited for {@link Subscribe#batchMillis()}, whatever comes first.
+ */
+final class EventBatcher implements Runnable {
+
+    /** A batch to be delivered, tracked by a single tracker if any of its events was posted by postAndTrack. */
+    static final class Batch {
+        final List<Object> events;
+        /** Completes the trackers of the events once the batch was delivered; holds one reference for the caller. */
+        final PostFuture tracker;
+
+        Batch(List<Object> events, List<PostFuture> trackers) {
+            this.events = events;
+            tracker = trackers != null ? combine(trackers) : null;
+        }
+
+        private static PostFuture combine(final List<PostFuture> trackers) {
+            PostFuture batchTracker = new PostFuture();
+            batchTracker.addCallback(new EventBus.PostCallback() {
+                @Override
+                public void onPostCompleted(List<SubscriberExceptionEvent> exceptionEvents) {
+                    for (PostFuture tracker : trackers) {
+                        for (SubscriberExceptionEvent exceptionEvent : exceptionEvents) {
+                            tracker.addExceptionEvent(exceptionEvent);
+                        }
+                        tracker.release();
+                    }
+                }
+            });
+            return batchTracker;
+        }
+    }
+
+    private final EventBus eventBus;
+    private final Subscription subscription;
+    private final int batchSize;
+    private final long batchNanos;
+
+    private List<Object> batch;
+    /** Trackers of the events in the batch; each holds a reference until the batch was delivered. */
+    private List<PostFuture> trackers;
+    private long batchStartedNanos;
+    private boolean scheduled;
+
+    EventBatcher(EventBus eventBus, Subscription subscription) {
+        this.eventBus = eventBus;
+        this.subscription = subscription;
+        batchSize = subscription.subscriberMethod.batchSize;
+        batchNanos = TimeUnit.MILLISECONDS.toNanos(subscription.subscriberMethod.batchMillis);
+    }
+
+    /** @return the full batch to be delivered right away, or null if the event was added to the current batch. */
+    synchronized Batch add(Object event, PostFuture tracker) {
+        if (batch == null) {
+            batch = new ArrayList<>(batchSize);
+            batchStartedNanos = System.nanoTime();
+        }
+        batch.add(event);
+        if (tracker != null) {
+            tracker.retain();
+            if (trackers == null) {
+                trackers = new ArrayList<>(2);
+            }
+            trackers.add(tracker);
+        }
+        if (batch.size() >= batchSize) {
+            return takeBatch();
+        }
+        if (!scheduled) {
+            scheduled = true;
+            SharedTimer.get().schedule(this, batchNanos, TimeUnit.NANOSECONDS);
+        }
+        return null;
+    }
+
+    @Override
+    public void run() {
+        Batch dueBatch;
+        synchronized (this) {
+            scheduled = false;
+            if (batch == null) {
+                return;
+            }
+            long remaining = batchStartedNanos + batchNanos - System.nanoTime();
+            if (remaining > 0) {
+                // The batch this task was scheduled for was full already; wait for the current one
+                scheduled = true;
+                SharedTimer.get().schedule(this, remaining, TimeUnit.NANOSECONDS);
+                return;
+            }
+            dueBatch = takeBatch();
+        }
+        eventBus.postDelayedToSubscription(subscription, dueBatch.events, dueBatch.tracker);
+    }
+
+    // Must be called in synchronized block
+    private Batch takeBatch() {
+        Batch fullBatch = new Batch(batch, trackers);
+        batch = null;
+        trackers = null;
+        return fullBatch;
+    }
+}
@@ -12,18 +12,23 @@
  */
 package org.greenrobot.eventbus;
 
-import android.os.Looper;
-import android.util.Log;
-
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 /**
  * EventBus is a central publish/subscribe event system for Android. Events are posted ({@link #post(Object)}) to the
@@ -43,10 +48,23 @@ public class EventBus {
 
 	private static final EventBusBuilder DEFAULT_BUILDER = new EventBusBuilder();
 	private static final Map<Class<?>, List<Class<?>>> eventTypesCache = new HashMap<>();
+	private static final EventJournal[] NO_JOURNALS = new EventJournal[0];
 
-	private final Map<Class<?>, CopyOnWriteArrayList<Subscription>> subscriptionsByEventType;
+	private final Map<Class<?>, SubscriptionList> subscriptionsByEventType;
 	private final Map<Object, List<Class<?>>> typesBySubscriber;
 	private final Map<Class<?>, Object> stickyEvents;
+	private final Map<Object, ReplyFuture<?>> pendingRequests;
+	/**
+	 * With event inheritance, whether events of a class can be dispatched to the subscriptions of the class only,
+	 * because there are no subscriptions to its super classes and interfaces. Written while holding this bus' lock.
+	 */
+	private final Map<Class<?>, Boolean> flatDispatchByEventClass = new ConcurrentHashMap<>();
+	/**
+	 * The subscription lists of an event class and its super types, for lock-free checks for subscribers. Cleared
+	 * while holding this bus' lock once a subscription list is added.
+	 */
+	private final Map<Class<?>, List<SubscriptionList>> subscriptionListsByEventClass =
+			new ConcurrentHashMap<>();
 
 	//线程内部的数据存储类，不与其他线程共享
 	private final ThreadLocal<PostingThreadState> currentPostingThreadState = new ThreadLocal<PostingThreadState>() {
@@ -56,21 +74,50 @@ public class EventBus {
 		}
 	};
 
-	private final HandlerPoster mainThreadPoster;
-	private final BackgroundPoster backgroundPoster;
+	private final MainThreadSupport mainThreadSupport;
+	private final Poster mainThreadPoster;
+	private final Poster backgroundPoster;
 	private final AsyncPoster asyncPoster;
+	/** Null unless created for {@link EventBusBuilder#asyncForkJoinPool(int)} by this bus (children share it). */
+	private final ForkJoinPool asyncForkJoinPool;
+	/** Background and async posters of the named executors, by executor name. */
+	private final Map<String, Poster> namedBackgroundPosters;
+	private final Map<String, Poster> namedAsyncPosters;
 	private final SubscriberMethodFinder subscriberMethodFinder;
 	private final ExecutorService executorService;
+	/** The builder's journal and those added by {@link #addJournal(EventJournal)}; replaced on changes. */
+	private volatile EventJournal[] journals;
+	private final DeadLetterStore deadLetterStore;
+	/** Null unless exception aggregation or the circuit breaker is enabled. */
+	private final SubscriberFailureMonitor failureMonitor;
+	private final boolean circuitBreakerEnabled;
+	private final Map<String, PrimitiveChannel> channels = new HashMap<>();
+	/** Runs BACKGROUND channel subscriptions one at a time; created on first use, guarded by channels. */
+	private PrimitiveChannel.SerialExecutor channelBackgroundExecutor;
+
+	private final Logger logger;
 
 	private final boolean throwSubscriberException;
+	/** Log categories; false if switched off or if the logger does not log the category's level. */
 	private final boolean logSubscriberExceptions;
 	private final boolean logNoSubscriberMessages;
+	/** Event classes already logged as having no subscribers; each is logged once to keep unmatched posts cheap. */
+	private final ConcurrentHashMap<Class<?>, Boolean> noSubscriberClassesLogged;
 	private final boolean sendSubscriberExceptionEvent;
 	private final boolean sendNoSubscriberEvent;
 	private final boolean eventInheritance;
+	private final boolean prioritizeQueuedDeliveries;
+	private final long priorityAgingNanos;
+	private final int queueCapacity;
+	private final BackpressurePolicy backpressurePolicy;
 
 	private final int indexCount;
 
+	/** Null unless this is a child bus, see {@link #createChild(Class[])}. */
+	private final EventBus parent;
+	private final Class<?>[] propagatedEventTypes;
+	private volatile boolean disposed;
+
 	/** Convenience singleton for apps using a process-wide EventBus instance. */
 	/** @phone 使用双重检查的单例模式创建EventBus对象 */
 	public static EventBus getDefault() {
@@ -103,22 +150,169 @@ public class EventBus {
 	}
 
 	EventBus(EventBusBuilder builder) {
+		this(builder, builder.executorService);
+	}
+
+	/** @param executorService replaces the builder's executor service, e.g. for partitions. */
+	EventBus(EventBusBuilder builder, ExecutorService executorService) {
 		subscriptionsByEventType = new HashMap<>();
 		typesBySubscriber = new HashMap<>();
 		stickyEvents = new ConcurrentHashMap<>();
-		mainThreadPoster = new HandlerPoster(this, Looper.getMainLooper(), 10);
-		backgroundPoster = new BackgroundPoster(this);
-		asyncPoster = new AsyncPoster(this);
+		pendingRequests = new IdentityHashMap<>();
+		logger = builder.getLogger();
+		// Needed by the posters' queues
+		prioritizeQueuedDeliveries = builder.prioritizeQueuedDeliveries;
+		priorityAgingNanos = TimeUnit.MILLISECONDS.toNanos(builder.priorityAgingMillis);
+		queueCapacity = builder.queueCapacity;
+		backpressurePolicy = builder.backpressurePolicy;
+		// The watchdog only reports by logging warnings; without them, it would only cost
+		PosterWatchdog watchdog = builder.watchdogBudgetMillis > 0 && logger.isLoggable(Level.WARNING) ?
+				new PosterWatchdog(builder.watchdogBudgetMillis, logger) : null;
+		mainThreadSupport = builder.getMainThreadSupport();
+		mainThreadPoster = new MainThreadPoster(this, mainThreadSupport, 10, createWatchdogSlot(watchdog, "main"));
+		if (builder.ringBufferCapacity > 0) {
+			backgroundPoster = new RingBufferPoster(this, builder.ringBufferCapacity, builder.ringBufferWaitStrategy,
+					createWatchdogSlot(watchdog, "background"));
+		} else {
+			backgroundPoster = new BackgroundPoster(this, executorService,
+					createWatchdogSlot(watchdog, "background"));
+		}
+		if (builder.asyncParallelism > 0) {
+			asyncForkJoinPool = new ForkJoinPool(builder.asyncParallelism,
+					ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+			asyncPoster = new AsyncPoster(this, asyncForkJoinPool);
+		} else {
+			asyncForkJoinPool = null;
+			asyncPoster = new AsyncPoster(this, executorService);
+		}
+		namedBackgroundPosters = new HashMap<>();
+		namedAsyncPosters = new HashMap<>();
+		if (builder.namedExecutors != null) {
+			for (Map.Entry<String, ExecutorService> entry : builder.namedExecutors.entrySet()) {
+				namedBackgroundPosters.put(entry.getKey(), new BackgroundPoster(this, entry.getValue(),
+						createWatchdogSlot(watchdog, "background \"" + entry.getKey() + "\"")));
+				namedAsyncPosters.put(entry.getKey(), new AsyncPoster(this, entry.getValue()));
+			}
+		}
 		indexCount = builder.subscriberInfoIndexes != null ? builder.subscriberInfoIndexes.size() : 0;
 		subscriberMethodFinder = new SubscriberMethodFinder(builder.subscriberInfoIndexes,
 				builder.strictMethodVerification, builder.ignoreGeneratedIndex);
-		logSubscriberExceptions = builder.logSubscriberExceptions;
-		logNoSubscriberMessages = builder.logNoSubscriberMessages;
+		// Levels are checked once, so disabled categories cost a single branch on the posting threads
+		logSubscriberExceptions = builder.logSubscriberExceptions && logger.isLoggable(Level.SEVERE);
+		logNoSubscriberMessages = builder.logNoSubscriberMessages && logger.isLoggable(Level.FINE);
+		noSubscriberClassesLogged = logNoSubscriberMessages ? new ConcurrentHashMap<Class<?>, Boolean>() : null;
 		sendSubscriberExceptionEvent = builder.sendSubscriberExceptionEvent;
 		sendNoSubscriberEvent = builder.sendNoSubscriberEvent;
 		throwSubscriberException = builder.throwSubscriberException;
 		eventInheritance = builder.eventInheritance;
-		executorService = builder.executorService;
+		this.executorService = executorService;
+		journals = builder.journal != null ? new EventJournal[]{builder.journal} : NO_JOURNALS;
+		deadLetterStore = builder.deadLetterCapacity > 0 ? new DeadLetterStore(this, builder.deadLetterCapacity) : null;
+		// Summaries only aggregate logged exceptions
+		long summaryMillis = logSubscriberExceptions ? builder.subscriberExceptionSummaryMillis : 0;
+		if (summaryMillis > 0 || builder.circuitBreakerFailures > 0) {
+			failureMonitor = new SubscriberFailureMonitor(summaryMillis, builder.circuitBreakerFailures,
+					builder.circuitBreakerSuspendMillis, logger);
+		} else {
+			failureMonitor = null;
+		}
+		circuitBreakerEnabled = failureMonitor != null && failureMonitor.isCircuitBreakerEnabled();
+		parent = null;
+		propagatedEventTypes = null;
+	}
+
+	/** Creates a child of the given bus, see {@link #createChild(Class[])}. */
+	private EventBus(EventBus parent, Class<?>[] propagatedEventTypes) {
+		subscriptionsByEventType = new HashMap<>();
+		typesBySubscriber = new HashMap<>();
+		stickyEvents = new ConcurrentHashMap<>();
+		pendingRequests = new IdentityHashMap<>();
+		this.parent = parent;
+		this.propagatedEventTypes = propagatedEventTypes;
+		logger = parent.logger;
+		prioritizeQueuedDeliveries = parent.prioritizeQueuedDeliveries;
+		priorityAgingNanos = parent.priorityAgingNanos;
+		queueCapacity = parent.queueCapacity;
+		backpressurePolicy = parent.backpressurePolicy;
+		// Shares the parent's posters, so creating a child does not create queues or threads
+		mainThreadSupport = parent.mainThreadSupport;
+		mainThreadPoster = parent.mainThreadPoster;
+		backgroundPoster = parent.backgroundPoster;
+		asyncPoster = parent.asyncPoster;
+		asyncForkJoinPool = null;
+		namedBackgroundPosters = parent.namedBackgroundPosters;
+		namedAsyncPosters = parent.namedAsyncPosters;
+		indexCount = parent.indexCount;
+		subscriberMethodFinder = parent.subscriberMethodFinder;
+		logSubscriberExceptions = parent.logSubscriberExceptions;
+		logNoSubscriberMessages = parent.logNoSubscriberMessages;
+		noSubscriberClassesLogged = parent.noSubscriberClassesLogged;
+		sendSubscriberExceptionEvent = parent.sendSubscriberExceptionEvent;
+		sendNoSubscriberEvent = parent.sendNoSubscriberEvent;
+		throwSubscriberException = parent.throwSubscriberException;
+		eventInheritance = parent.eventInheritance;
+		executorService = parent.executorService;
+		// Propagated events are recorded by the parent's journal
+		journals = NO_JOURNALS;
+		deadLetterStore = parent.deadLetterStore;
+		failureMonitor = parent.failureMonitor;
+		circuitBreakerEnabled = parent.circuitBreakerEnabled;
+	}
+
+	/**
+	 * Creates a child bus for a short-lived scope, e.g. a request or a screen. The child has its own registry, so
+	 * registering and unregistering its subscribers does not touch this bus' subscriptions, and it is discarded as a
+	 * whole using {@link #dispose()}. It shares the configuration, posters and threads of this bus.
+	 * <p/>
+	 * Events posted to the child are propagated to this bus after the child's subscribers were called if they are
+	 * instances of one of the given event types; events posted to this bus are not delivered to the child. Note that
+	 * exceptions thrown by subscribers of the child that are not called in the posting thread are handled by this bus,
+	 * whose posters call them.
+	 */
+	public EventBus createChild(Class<?>... propagatedEventTypes) {
+		if (disposed) {
+			throw new EventBusException("EventBus was disposed");
+		}
+		return new EventBus(this, propagatedEventTypes.length > 0 ? propagatedEventTypes.clone() : null);
+	}
+
+	/**
+	 * Discards this child bus (see {@link #createChild(Class[])}) with all its subscriptions and sticky events, without
+	 * unregistering subscribers one by one. Pending deliveries of its subscriptions are dropped. Events posted to a
+	 * disposed child are ignored, and registering subscribers fails.
+	 */
+	public void dispose() {
+		if (parent == null) {
+			throw new EventBusException("Only child buses can be disposed");
+		}
+		synchronized (this) {
+			disposed = true;
+			for (SubscriptionList subscriptions : subscriptionsByEventType.values()) {
+				for (Subscription subscription : subscriptions) {
+					subscription.active = false;
+				}
+			}
+			subscriptionsByEventType.clear();
+			typesBySubscriber.clear();
+			flatDispatchByEventClass.clear();
+			subscriptionListsByEventClass.clear();
+		}
+		stickyEvents.clear();
+	}
+
+	public EventBus getParent() {
+		return parent;
+	}
+
+	private boolean isPropagated(Class<?> eventClass) {
+		if (propagatedEventTypes != null) {
+			for (Class<?> propagatedEventType : propagatedEventTypes) {
+				if (propagatedEventType.isAssignableFrom(eventClass)) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -133,6 +327,9 @@ public class EventBus {
 		//该订阅者的响应方法集合
 		List<SubscriberMethod> subscriberMethods = subscriberMethodFinder.findSubscriberMethods(subscriberClass);
 		synchronized (this) {
+			if (disposed) {
+				throw new EventBusException("EventBus was disposed");
+			}
 			//遍历响应方法，开始注册
 			for (SubscriberMethod subscriberMethod : subscriberMethods) {
 				subscribe(subscriber, subscriberMethod);
@@ -144,18 +341,32 @@ public class EventBus {
 	private void subscribe(Object subscriber, SubscriberMethod subscriberMethod) {
 		Class<?> eventType = subscriberMethod.eventType;
 		Subscription newSubscription = new Subscription(subscriber, subscriberMethod);
+		if (subscriberMethod.rateLimit != RateLimit.NONE) {
+			newSubscription.rateLimiter = new RateLimiter(this, newSubscription);
+		}
+		if (subscriberMethod.batchSize > 0) {
+			newSubscription.batcher = new EventBatcher(this, newSubscription);
+		}
+		if (subscriberMethod.executorName.length() > 0) {
+			newSubscription.namedExecutorPoster = getNamedExecutorPoster(subscriberMethod);
+		}
 		//从缓存中，获得该事件类型的所有订阅信息(包括订阅者和响应方法)集合
-		CopyOnWriteArrayList<Subscription> subscriptions = subscriptionsByEventType.get(eventType);
+		SubscriptionList subscriptions = subscriptionsByEventType.get(eventType);
 		if (subscriptions == null) {
 			//之前没有该事件类型的订阅信息集合，即刻创建并存入缓存中
-			subscriptions = new CopyOnWriteArrayList<>();
+			subscriptions = new SubscriptionList();
 			subscriptionsByEventType.put(eventType, subscriptions);
+			subscriptionListsByEventClass.clear();
+			invalidateFlatDispatch(eventType);
 		} else {
 			if (subscriptions.contains(newSubscription)) {
 				//该事件类型，订阅者之前已经订阅了
 				throw new EventBusException(
 						"Subscriber " + subscriber.getClass() + " already registered to event " + eventType);
 			}
+			if (subscriptions.isEmpty()) {
+				invalidateFlatDispatch(eventType);
+			}
 		}
 
 		//根据优先级调整订阅信息集合中元素的位置
@@ -197,11 +408,88 @@ public class EventBus {
 		}
 	}
 
+	private Poster getNamedExecutorPoster(SubscriberMethod subscriberMethod) {
+		Map<String, Poster> posters;
+		if (subscriberMethod.threadMode == ThreadMode.BACKGROUND) {
+			posters = namedBackgroundPosters;
+		} else if (subscriberMethod.threadMode == ThreadMode.ASYNC) {
+			posters = namedAsyncPosters;
+		} else {
+			throw new EventBusException("Named executors require thread mode BACKGROUND or ASYNC: "
+					+ subscriberMethod.method);
+		}
+		Poster poster = posters.get(subscriberMethod.executorName);
+		if (poster == null) {
+			throw new EventBusException("No executor named \"" + subscriberMethod.executorName + "\" registered for "
+					+ subscriberMethod.method);
+		}
+		return poster;
+	}
+
 	private void checkPostStickyEventToSubscription(Subscription newSubscription, Object stickyEvent) {
 		if (stickyEvent != null) {
 			// If the subscriber is trying to abort the event, it will fail (event is not tracked in posting state)
 			// --> Strange corner case, which we don't take care of here.
-			postToSubscription(newSubscription, stickyEvent, Looper.getMainLooper() == Looper.myLooper());
+			postToSubscription(newSubscription, stickyEvent, isMainThread());
+		}
+	}
+
+	// Must be called in synchronized block, once the given event type gets its first subscription
+	private void invalidateFlatDispatch(Class<?> eventType) {
+		if (!eventInheritance || flatDispatchByEventClass.isEmpty()) {
+			return;
+		}
+		for (Map.Entry<Class<?>, Boolean> entry : flatDispatchByEventClass.entrySet()) {
+			Class<?> eventClass = entry.getKey();
+			if (eventClass != eventType && entry.getValue() && eventType.isAssignableFrom(eventClass)) {
+				flatDispatchByEventClass.put(eventClass, Boolean.FALSE);
+			}
+		}
+	}
+
+	/**
+	 * Whether events of the given class need to be dispatched to the subscriptions of the class only. Decided once per
+	 * event class and updated by {@link #invalidateFlatDispatch(Class)}; unsubscribing does not turn it back to flat.
+	 */
+	private boolean isFlatDispatch(Class<?> eventClass) {
+		Boolean flat = flatDispatchByEventClass.get(eventClass);
+		if (flat == null) {
+			List<Class<?>> eventTypes = lookupAllEventTypes(eventClass);
+			synchronized (this) {
+				flat = Boolean.TRUE;
+				int countTypes = eventTypes.size();
+				for (int h = 0; h < countTypes; h++) {
+					Class<?> clazz = eventTypes.get(h);
+					if (clazz != eventClass) {
+						SubscriptionList subscriptions = subscriptionsByEventType.get(clazz);
+						if (subscriptions != null && !subscriptions.isEmpty()) {
+							flat = Boolean.FALSE;
+							break;
+						}
+					}
+				}
+				flatDispatchByEventClass.put(eventClass, flat);
+			}
+		}
+		return flat;
+	}
+
+	/**
+	 * Adds a journal receiving all events posted to this bus from now on, in addition to the one set by
+	 * {@link EventBusBuilder#journal(EventJournal)}. Unlike a subscriber to Object, a journal does not take part in
+	 * dispatching, e.g. events without other subscribers still cause a {@link NoSubscriberEvent}.
+	 */
+	public synchronized void addJournal(EventJournal journal) {
+		EventJournal[] newJournals = Arrays.copyOf(journals, journals.length + 1);
+		newJournals[journals.length] = journal;
+		journals = newJournals;
+	}
+
+	/** Removes a journal added by {@link #addJournal(EventJournal)}. */
+	public synchronized void removeJournal(EventJournal journal) {
+		List<EventJournal> newJournals = new ArrayList<>(Arrays.asList(journals));
+		if (newJournals.remove(journal)) {
+			journals = newJournals.toArray(new EventJournal[newJournals.size()]);
 		}
 	}
 
@@ -212,7 +500,7 @@ public class EventBus {
 	/** Only updates subscriptionsByEventType, not typesBySubscriber! Caller must update typesBySubscriber. */
 	private void unsubscribeByEventType(Object subscriber, Class<?> eventType) {
 		//订阅该事件的所有订阅信息
-		List<Subscription> subscriptions = subscriptionsByEventType.get(eventType);
+		SubscriptionList subscriptions = subscriptionsByEventType.get(eventType);
 		if (subscriptions != null) {
 			//从订阅信息中移除该订阅者的订阅信息
 			int size = subscriptions.size();
@@ -225,6 +513,7 @@ public class EventBus {
 					size--;
 				}
 			}
+			subscriptions.updateMayCancel();
 		}
 	}
 
@@ -239,8 +528,8 @@ public class EventBus {
 			}
 			//从（订阅者-事件类型集）中删除该订阅者
 			typesBySubscriber.remove(subscriber);
-		} else {
-			Log.w(TAG, "Subscriber to unregister was not registered before: " + subscriber.getClass());
+		} else if (!disposed && logger.isLoggable(Level.WARNING)) {
+			logger.log(Level.WARNING, "Subscriber to unregister was not registered before: " + subscriber.getClass());
 		}
 	}
 
@@ -253,7 +542,7 @@ public class EventBus {
 		//是否正在执行
 		if (!postingState.isPosting) {
 			//是否在主线程
-			postingState.isMainThread = Looper.getMainLooper() == Looper.myLooper();
+			postingState.isMainThread = isMainThread();
 			postingState.isPosting = true;
 			if (postingState.canceled) {
 				throw new EventBusException("Internal error. Abort state was not reset");
@@ -270,6 +559,267 @@ public class EventBus {
 		}
 	}
 
+	/**
+	 * Posts the given event like {@link #post(Object)}, but rejects deliveries to full poster queues instead of applying
+	 * the {@link BackpressurePolicy} (see {@link EventBusBuilder#queueCapacity(int, BackpressurePolicy)}). This also
+	 * applies to events posted by subscribers called in the posting thread. If called by a subscriber in the posting
+	 * thread, the event is dispatched right away, before events posted earlier by the subscriber.
+	 *
+	 * @return false if a delivery was rejected
+	 */
+	public boolean tryPost(Object event) {
+		PostingThreadState postingState = currentPostingThreadState.get();
+		boolean outerRejectIfFull = postingState.rejectIfFull;
+		boolean outerRejected = postingState.rejected;
+		postingState.rejectIfFull = true;
+		postingState.rejected = false;
+		try {
+			if (postingState.isPosting) {
+				// Called by a subscriber: the outer loop would dispatch the event too late to report rejections
+				Object outerEvent = postingState.event;
+				Subscription outerSubscription = postingState.subscription;
+				boolean outerCanceled = postingState.canceled;
+				// Not set for subscriptions that cannot cancel; the outer event must not be canceled by those
+				postingState.event = null;
+				postingState.subscription = null;
+				postingState.canceled = false;
+				try {
+					postSingleEvent(event, postingState);
+				} finally {
+					postingState.event = outerEvent;
+					postingState.subscription = outerSubscription;
+					postingState.canceled = outerCanceled;
+				}
+			} else {
+				post(event);
+			}
+			return !postingState.rejected;
+		} finally {
+			postingState.rejectIfFull = outerRejectIfFull;
+			postingState.rejected = outerRejected;
+		}
+	}
+
+	/** Posts the given events in the given order, see {@link #postAll(Collection)}. */
+	public void postAll(Object... events) {
+		postAll(Arrays.asList(events));
+	}
+
+	/**
+	 * Posts the given events in their iteration order. Compared to calling {@link #post(Object)} for each event, the
+	 * posting thread state is resolved once, subscriptions are looked up once per event class, and deliveries queued
+	 * for the main thread, background or async posters are handed over to each poster at once.
+	 */
+	public void postAll(Collection<?> events) {
+		PostingThreadState postingState = currentPostingThreadState.get();
+		List<Object> eventQueue = postingState.eventQueue;
+		if (postingState.isPosting) {
+			// Called from a subscriber: queued events are dispatched by the posting thread's outer loop
+			eventQueue.addAll(events);
+			return;
+		}
+		postingState.isMainThread = isMainThread();
+		postingState.isPosting = true;
+		postingState.batching = true;
+		if (postingState.canceled) {
+			throw new EventBusException("Internal error. Abort state was not reset");
+		}
+		Map<Class<?>, List<SubscriptionList>> subscriptionsByClass = new HashMap<>();
+		try {
+			for (Object event : events) {
+				try {
+					postBatchedEvent(event, postingState, subscriptionsByClass);
+				} finally {
+					if (event instanceof PooledEvent) {
+						((PooledEvent) event).release();
+					}
+				}
+				if (!eventQueue.isEmpty()) {
+					// Events posted by subscribers must not overtake the deliveries collected so far
+					enqueuePendingPostBatches(postingState);
+					while (!eventQueue.isEmpty()) {
+						postSingleEvent(eventQueue.remove(0), postingState);
+					}
+				}
+			}
+		} finally {
+			try {
+				enqueuePendingPostBatches(postingState);
+			} finally {
+				postingState.batching = false;
+				postingState.isPosting = false;
+				postingState.isMainThread = false;
+			}
+		}
+	}
+
+	/** Like {@link #postSingleEventForEventTypes(Object, PostingThreadState)}, looking up subscriptions once per class. */
+	private void postBatchedEvent(Object event, PostingThreadState postingState,
+			Map<Class<?>, List<SubscriptionList>> subscriptionsByClass) {
+		if (parent != null && disposed) {
+			return;
+		}
+		for (EventJournal journal : journals) {
+			journal.append(event);
+		}
+		Class<?> eventClass = event.getClass();
+		List<SubscriptionList> subscriptionLists = subscriptionsByClass.get(eventClass);
+		if (subscriptionLists == null) {
+			subscriptionLists = findSubscriptionLists(eventClass);
+			subscriptionsByClass.put(eventClass, subscriptionLists);
+		}
+		boolean subscriptionFound = false;
+		int countLists = subscriptionLists.size();
+		for (int i = 0; i < countLists; i++) {
+			subscriptionFound |= postToSubscriptions(event, postingState, subscriptionLists.get(i));
+		}
+		if (parent != null && isPropagated(eventClass)) {
+			// The parent takes care of events without subscribers
+			propagate(event, postingState.tracker);
+		} else if (!subscriptionFound) {
+			noSubscriberFound(event, eventClass);
+		}
+	}
+
+	/** Returns the non-empty subscription lists an event of the given class is delivered to, with a single lock. */
+	private List<SubscriptionList> findSubscriptionLists(Class<?> eventClass) {
+		List<Class<?>> eventTypes;
+		if (eventInheritance && !isFlatDispatch(eventClass)) {
+			eventTypes = lookupAllEventTypes(eventClass);
+		} else {
+			eventTypes = Collections.<Class<?>>singletonList(eventClass);
+		}
+		List<SubscriptionList> subscriptionLists = new ArrayList<>(eventTypes.size());
+		synchronized (this) {
+			int countTypes = eventTypes.size();
+			for (int h = 0; h < countTypes; h++) {
+				SubscriptionList subscriptions = subscriptionsByEventType.get(eventTypes.get(h));
+				if (subscriptions != null) {
+					subscriptionLists.add(subscriptions);
+				}
+			}
+		}
+		return subscriptionLists;
+	}
+
+	/**
+	 * Hands over all batches, even if a poster throws (e.g. {@link BackpressurePolicy#FAIL}); the first exception is
+	 * thrown once all batches are empty.
+	 */
+	private void enqueuePendingPostBatches(PostingThreadState postingState) {
+		EventBusException failure = enqueuePendingPostBatch(mainThreadPoster, postingState.mainThreadBatch, null);
+		failure = enqueuePendingPostBatch(backgroundPoster, postingState.backgroundBatch, failure);
+		failure = enqueuePendingPostBatch(asyncPoster, postingState.asyncBatch, failure);
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private static EventBusException enqueuePendingPostBatch(Poster poster, PendingPostBatch batch,
+			EventBusException failure) {
+		if (batch.isEmpty()) {
+			return failure;
+		}
+		// Cleared before handing over, so a throwing poster does not leave queued pending posts in the batch
+		PendingPostBatch pendingPosts = batch.take();
+		try {
+			poster.enqueueAll(pendingPosts);
+		} catch (EventBusException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+		return failure;
+	}
+
+	/**
+	 * Posts the given event like {@link #post(Object)} and tracks its delivery: the returned future is done once all
+	 * subscribers have finished handling the event, also in the main thread, background and async threads. Its
+	 * result are the exceptions thrown by subscribers. A single counter is used for all deliveries of the event. On a
+	 * child bus, this includes the deliveries of the parent buses the event is propagated to.
+	 */
+	public PostFuture postAndTrack(Object event) {
+		if (event == null) {
+			throw new EventBusException("Event may not be null");
+		}
+		PostFuture future = new PostFuture();
+		post(new TrackedPost(event, future));
+		return future;
+	}
+
+	/**
+	 * Posts the given request event and returns a future for the first reply of the given type given by a subscriber
+	 * using {@link #reply(Object, Object)}. The future fails with a {@link java.util.concurrent.TimeoutException} if
+	 * there was no reply within the given time.
+	 */
+	public <R> ReplyFuture<R> request(Object request, Class<R> responseType, long timeoutMillis) {
+		ReplyFuture<R> future = new ReplyFuture<>(this, request, responseType, false);
+		startRequest(future, timeoutMillis);
+		return future;
+	}
+
+	/**
+	 * Posts the given request event and returns a future for all replies of the given type given by subscribers using
+	 * {@link #reply(Object, Object)}, possibly in parallel in background and async threads. The future is done once all
+	 * subscribers have handled the request (see {@link #postAndTrack(Object)}), or with the replies received so far
+	 * once the timeout elapsed.
+	 */
+	public <R> ReplyFuture<List<R>> gather(Object request, Class<R> responseType, long timeoutMillis) {
+		final ReplyFuture<List<R>> future = new ReplyFuture<>(this, request, responseType, true);
+		PostFuture postFuture = startRequest(future, timeoutMillis);
+		postFuture.addCallback(new PostCallback() {
+			@Override
+			public void onPostCompleted(List<SubscriberExceptionEvent> exceptionEvents) {
+				future.onAllSubscribersFinished();
+			}
+		});
+		return future;
+	}
+
+	private PostFuture startRequest(ReplyFuture<?> future, long timeoutMillis) {
+		Object request = future.getRequest();
+		if (request == null) {
+			throw new EventBusException("Request may not be null");
+		}
+		// Kept by the future to match replies
+		PooledEvent.detach(request);
+		synchronized (pendingRequests) {
+			if (pendingRequests.containsKey(request)) {
+				throw new EventBusException("Request " + request.getClass() + " is already pending");
+			}
+			pendingRequests.put(request, future);
+		}
+		future.scheduleTimeout(timeoutMillis);
+		return postAndTrack(request);
+	}
+
+	/**
+	 * Replies to a request event posted by {@link #request(Object, Class, long)} or
+	 * {@link #gather(Object, Class, long)}, typically called from a subscriber handling the request. The response is
+	 * handed to the waiting future directly without being posted.
+	 *
+	 * @return false if nobody waits for a reply (anymore), e.g. because the request timed out.
+	 */
+	public boolean reply(Object request, Object response) {
+		if (response == null) {
+			throw new EventBusException("Response may not be null");
+		}
+		ReplyFuture<?> future;
+		synchronized (pendingRequests) {
+			future = pendingRequests.get(request);
+		}
+		return future != null && future.offer(response);
+	}
+
+	void removePendingRequest(ReplyFuture<?> future) {
+		synchronized (pendingRequests) {
+			Object request = future.getRequest();
+			if (pendingRequests.get(request) == future) {
+				pendingRequests.remove(request);
+			}
+		}
+	}
+
 	/**
 	 * Called from a subscriber's event handling method, further event delivery will be canceled. Subsequent subscribers
 	 * won't receive the event. Events are usually canceled by higher priority subscribers (see
@@ -297,6 +847,7 @@ public class EventBus {
 	 * event of an event's type is kept in memory for future access by subscribers using {@link Subscribe#sticky()}.
 	 */
 	public void postSticky(Object event) {
+		PooledEvent.detach(event);
 		synchronized (stickyEvents) {
 			stickyEvents.put(event.getClass(), event);
 		}
@@ -353,29 +904,86 @@ public class EventBus {
 		}
 	}
 
+	/** Checks without locking whether there are subscribers to the given event class or one of its super types. */
 	public boolean hasSubscriberForEvent(Class<?> eventClass) {
-		List<Class<?>> eventTypes = lookupAllEventTypes(eventClass);
-		if (eventTypes != null) {
+		List<SubscriptionList> subscriptionLists = subscriptionListsByEventClass.get(eventClass);
+		if (subscriptionLists == null) {
+			List<Class<?>> eventTypes = lookupAllEventTypes(eventClass);
 			int countTypes = eventTypes.size();
-			for (int h = 0; h < countTypes; h++) {
-				Class<?> clazz = eventTypes.get(h);
-				CopyOnWriteArrayList<Subscription> subscriptions;
-				synchronized (this) {
-					subscriptions = subscriptionsByEventType.get(clazz);
-				}
-				if (subscriptions != null && !subscriptions.isEmpty()) {
-					return true;
+			subscriptionLists = new ArrayList<>(countTypes);
+			synchronized (this) {
+				for (int h = 0; h < countTypes; h++) {
+					SubscriptionList subscriptions = subscriptionsByEventType.get(eventTypes.get(h));
+					if (subscriptions != null) {
+						subscriptionLists.add(subscriptions);
+					}
 				}
+				subscriptionListsByEventClass.put(eventClass, subscriptionLists);
+			}
+		}
+		// The lists stay the same; only their contents change
+		int countLists = subscriptionLists.size();
+		for (int i = 0; i < countLists; i++) {
+			if (!subscriptionLists.get(i).isEmpty()) {
+				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Posts the event given by the supplier, but only creates it if there are subscribers to the given event class or,
+	 * with {@link EventBusBuilder#eventInheritance(boolean)}, one of its super types, including those of the parent bus
+	 * if the event is propagated. This avoids creating expensive events nobody receives; no {@link NoSubscriberEvent}
+	 * is posted for them. Subscribers to sub classes of the given class only are not considered.
+	 */
+	public <E> void post(Class<E> eventClass, EventSupplier<E> supplier) {
+		if (hasSubscriberForPost(eventClass)
+				|| (parent != null && isPropagated(eventClass) && parent.hasSubscriberForPost(eventClass))) {
+			post(supplier.get());
+		}
+	}
+
+	/** Like {@link #hasSubscriberForEvent(Class)}, but ignores super types if event inheritance is disabled. */
+	private boolean hasSubscriberForPost(Class<?> eventClass) {
+		if (eventInheritance) {
+			return hasSubscriberForEvent(eventClass);
+		}
+		SubscriptionList subscriptions;
+		synchronized (this) {
+			subscriptions = subscriptionsByEventType.get(eventClass);
+		}
+		return subscriptions != null && !subscriptions.isEmpty();
+	}
+
 	private void postSingleEvent(Object event, PostingThreadState postingState) throws Error {
+		if (event instanceof TrackedPost) {
+			postTrackedEvent((TrackedPost) event, postingState);
+			return;
+		}
+		if (event instanceof PooledEvent) {
+			try {
+				postSingleEventForEventTypes(event, postingState);
+			} finally {
+				// Releases the reference handed over by posting; queued deliveries hold their own references
+				((PooledEvent) event).release();
+			}
+		} else {
+			postSingleEventForEventTypes(event, postingState);
+		}
+	}
+
+	private void postSingleEventForEventTypes(Object event, PostingThreadState postingState) {
+		if (parent != null && disposed) {
+			return;
+		}
+		for (EventJournal journal : journals) {
+			journal.append(event);
+		}
 		Class<?> eventClass = event.getClass();
 		boolean subscriptionFound = false;
 		//是否响应该事件的父类/接口的订阅
-		if (eventInheritance) {
+		if (eventInheritance && !isFlatDispatch(eventClass)) {
 			//事件类型的所有父类或接口
 			List<Class<?>> eventTypes = lookupAllEventTypes(eventClass);
 			int countTypes = eventTypes.size();
@@ -386,32 +994,99 @@ public class EventBus {
 		} else {
 			subscriptionFound = postSingleEventForEventType(event, postingState, eventClass);
 		}
-		if (!subscriptionFound) {
-			if (logNoSubscriberMessages) {
-				Log.d(TAG, "No subscribers registered for event " + eventClass);
-			}
-			if (sendNoSubscriberEvent && eventClass != NoSubscriberEvent.class
-					&& eventClass != SubscriberExceptionEvent.class) {
-				post(new NoSubscriberEvent(this, event));
-			}
+		if (parent != null && isPropagated(eventClass)) {
+			// The parent takes care of events without subscribers
+			propagate(event, postingState.tracker);
+		} else if (!subscriptionFound) {
+			noSubscriberFound(event, eventClass);
+		}
+	}
+
+	/**
+	 * Hands an event posted to this child bus over to the parent.
+	 *
+	 * @param tracker if not null, the event was posted by {@link #postAndTrack(Object)}; the tracker also covers the
+	 *            parent's deliveries.
+	 */
+	private void propagate(Object event, PostFuture tracker) {
+		if (event instanceof PooledEvent) {
+			// Handed over to the parent's post, which releases it
+			((PooledEvent) event).retain();
+		}
+		if (tracker != null) {
+			// Released by the parent once dispatched, which may be after this child's post returned
+			tracker.retain();
+			parent.post(new TrackedPost(event, tracker));
+		} else {
+			parent.post(event);
+		}
+	}
+
+	private void postTrackedEvent(TrackedPost trackedPost, PostingThreadState postingState) {
+		PostFuture tracker = trackedPost.tracker;
+		postingState.tracker = tracker;
+		try {
+			postSingleEvent(trackedPost.event, postingState);
+		} finally {
+			postingState.tracker = null;
+			// Releases the hold of the posting thread; completes unless deliveries are still queued
+			tracker.release();
+		}
+	}
+
+	private void noSubscriberFound(Object event, Class<?> eventClass) {
+		if (logNoSubscriberMessages && noSubscriberClassesLogged.get(eventClass) == null
+				&& noSubscriberClassesLogged.putIfAbsent(eventClass, Boolean.TRUE) == null) {
+			logger.log(Level.FINE, "No subscribers registered for event " + eventClass
+					+ " (further events of this class without subscribers are not logged)");
+		}
+		if (eventClass == NoSubscriberEvent.class || eventClass == SubscriberExceptionEvent.class) {
+			return;
+		}
+		// Kept by the dead letter or the NoSubscriberEvent
+		PooledEvent.detach(event);
+		if (deadLetterStore != null) {
+			deadLetterStore.add(event, null, null);
+		} else if (sendNoSubscriberEvent) {
+			post(new NoSubscriberEvent(this, event));
 		}
 	}
 
 	private boolean postSingleEventForEventType(Object event, PostingThreadState postingState, Class<?> eventClass) {
-		CopyOnWriteArrayList<Subscription> subscriptions;
+		SubscriptionList subscriptions;
 		synchronized (this) {
 			//订阅该事件类型的订阅信息集合
 			subscriptions = subscriptionsByEventType.get(eventClass);
 		}
+		return postToSubscriptions(event, postingState, subscriptions);
+	}
+
+	private boolean postToSubscriptions(Object event, PostingThreadState postingState,
+			SubscriptionList subscriptions) {
 		if (subscriptions != null && !subscriptions.isEmpty()) {
+			// The flag is read after taking the snapshot, see SubscriptionList.mayCancel
+			Iterator<Subscription> iterator = subscriptions.iterator();
+			if (!subscriptions.mayCancel) {
+				// No subscriber may cancel the delivery: skip the posting thread state bookkeeping
+				while (iterator.hasNext()) {
+					postToSubscription(iterator.next(), event, postingState.isMainThread, postingState);
+				}
+				return true;
+			}
 			//遍历所有订阅信息，分发该事件
-			for (Subscription subscription : subscriptions) {
+			while (iterator.hasNext()) {
+				Subscription subscription = iterator.next();
+				if (subscription.subscriberMethod.threadMode != ThreadMode.POSTING) {
+					// May not cancel the delivery
+					postToSubscription(subscription, event, postingState.isMainThread, postingState);
+					continue;
+				}
 				//将事件、订阅信息赋给postingState
 				postingState.event = event;
 				postingState.subscription = subscription;
 				boolean aborted = false;
 				try {
-					postToSubscription(subscription, event, postingState.isMainThread);
+					postToSubscription(subscription, event, postingState.isMainThread, postingState);
 					aborted = postingState.canceled;
 				} finally {
 					postingState.event = null;
@@ -428,36 +1103,217 @@ public class EventBus {
 	}
 
 	private void postToSubscription(Subscription subscription, Object event, boolean isMainThread) {
+		postToSubscription(subscription, event, isMainThread, null);
+	}
+
+	/** @param postingState the state of the posting thread, or null if not delivered by a posting thread. */
+	private void postToSubscription(Subscription subscription, Object event, boolean isMainThread,
+			PostingThreadState postingState) {
+		RateLimiter rateLimiter = subscription.rateLimiter;
+		if (rateLimiter != null || subscription.batcher != null) {
+			// May be held back beyond this dispatch
+			PooledEvent.detach(event);
+		}
+		PostFuture tracker = postingState != null ? postingState.tracker : null;
+		if (rateLimiter != null && !rateLimiter.offer(event, tracker)) {
+			// Dropped or held back for a delayed delivery
+			return;
+		}
+		EventBatcher batcher = subscription.batcher;
+		if (batcher != null) {
+			EventBatcher.Batch batch = batcher.add(event, tracker);
+			if (batch != null) {
+				postBatch(subscription, batch, isMainThread, postingState);
+			}
+			return;
+		}
+		deliverToSubscription(subscription, event, isMainThread, postingState, tracker);
+	}
+
+	/** Delivers a full batch; its tracker, if any, replaces the tracker of the posted event. */
+	private void postBatch(Subscription subscription, EventBatcher.Batch batch, boolean isMainThread,
+			PostingThreadState postingState) {
+		try {
+			deliverToSubscription(subscription, batch.events, isMainThread, postingState, batch.tracker);
+		} finally {
+			if (batch.tracker != null) {
+				batch.tracker.release();
+			}
+		}
+	}
+
+	/**
+	 * Delivers an event held back by a {@link RateLimiter} or a batch of an {@link EventBatcher}; called in the shared
+	 * timer thread. The subscriber is never invoked in the timer thread, as a slow subscriber would hold up all timers
+	 * including the watchdog: POSTING subscribers are called in the background thread instead. The delivery is queued
+	 * without blocking; if the poster's queue is full, it's dropped and recorded as a dead letter if enabled.
+	 *
+	 * @param tracker if not null, the reference held for the delayed delivery is released once it was dispatched.
+	 */
+	void postDelayedToSubscription(Subscription subscription, Object event, PostFuture tracker) {
+		try {
+			if (!subscription.active) {
+				return;
+			}
+			Poster poster = subscription.namedExecutorPoster;
+			if (poster == null) {
+				switch (subscription.subscriberMethod.threadMode) {
+					case MAIN:
+						poster = mainThreadPoster;
+						break;
+					case ASYNC:
+						poster = asyncPoster;
+						break;
+					default:
+						poster = backgroundPoster;
+				}
+			}
+			retain(event, tracker);
+			if (!poster.tryEnqueue(subscription, event, tracker)) {
+				if (deadLetterStore != null) {
+					PooledEvent.detach(event);
+					deadLetterStore.add(event, subscription, null);
+				}
+				release(event, tracker);
+				if (logger.isLoggable(Level.WARNING)) {
+					logger.log(Level.WARNING, "Poster queue is full, dropped delayed delivery to " +
+							subscription.subscriber.getClass());
+				}
+			}
+		} finally {
+			if (tracker != null) {
+				tracker.release();
+			}
+		}
+	}
+
+	/**
+	 * @param postingState the state of the posting thread, or null if not delivered by a posting thread. Used to
+	 *            collect queued deliveries during {@link #postAll(Collection)}.
+	 * @param tracker if not null, tracks the delivery for {@link #postAndTrack(Object)}.
+	 */
+	private void deliverToSubscription(Subscription subscription, Object event, boolean isMainThread,
+			PostingThreadState postingState, PostFuture tracker) {
+		boolean batching = postingState != null && postingState.batching;
+		Poster namedExecutorPoster = subscription.namedExecutorPoster;
+		if (namedExecutorPoster != null) {
+			// BACKGROUND or ASYNC subscriber running on a named executor: always queued
+			enqueue(namedExecutorPoster, null, subscription, event, tracker, postingState);
+			return;
+		}
 		switch (subscription.subscriberMethod.threadMode) {
 			case POSTING:
 				//不切换线程执行，默认
-				invokeSubscriber(subscription, event);
+				invokeSubscriber(subscription, event, tracker);
 				break;
 			case MAIN:
 				//响应方法在主线程中执行
 				if (isMainThread) {
-					invokeSubscriber(subscription, event);
+					invokeSubscriber(subscription, event, tracker);
 				} else {
-					mainThreadPoster.enqueue(subscription, event);
+					PendingPostBatch batch = batching && !subscription.subscriberMethod.conflate ?
+							postingState.mainThreadBatch : null;
+					enqueue(mainThreadPoster, batch, subscription, event, tracker, postingState);
 				}
 				break;
 			case BACKGROUND:
 				//响应方法在后台线程中执行
-				if (isMainThread) {
-					backgroundPoster.enqueue(subscription, event);
+				if (!isMainThread) {
+					invokeSubscriber(subscription, event, tracker);
 				} else {
-					invokeSubscriber(subscription, event);
+					PendingPostBatch batch = batching ? postingState.backgroundBatch : null;
+					enqueue(backgroundPoster, batch, subscription, event, tracker, postingState);
 				}
 				break;
 			case ASYNC:
 				//重新开启一个线程执行
-				asyncPoster.enqueue(subscription, event);
+				PendingPostBatch batch = batching ? postingState.asyncBatch : null;
+				enqueue(asyncPoster, batch, subscription, event, tracker, postingState);
 				break;
 			default:
 				throw new IllegalStateException("Unknown thread mode: " + subscription.subscriberMethod.threadMode);
 		}
 	}
 
+	/**
+	 * Queues a delivery to the given poster, or adds it to the batch collected by {@link #postAll(Collection)} if not
+	 * null. In {@link #tryPost(Object)}, the delivery is rejected if the poster's queue is full.
+	 */
+	private void enqueue(Poster poster, PendingPostBatch batch, Subscription subscription, Object event,
+			PostFuture tracker, PostingThreadState postingState) {
+		retain(event, tracker);
+		if (postingState != null && postingState.rejectIfFull) {
+			if (!poster.tryEnqueue(subscription, event, tracker)) {
+				postingState.rejected = true;
+				release(event, tracker);
+			}
+		} else if (batch != null) {
+			batch.add(subscription, event, tracker);
+		} else {
+			poster.enqueue(subscription, event, tracker);
+		}
+	}
+
+	/** Adds the references held by a queued delivery until {@link #invokeSubscriber(PendingPost)}. */
+	private static void retain(Object event, PostFuture tracker) {
+		if (tracker != null) {
+			tracker.retain();
+		}
+		if (event instanceof PooledEvent) {
+			((PooledEvent) event).retain();
+		}
+	}
+
+	private static void release(Object event, PostFuture tracker) {
+		if (tracker != null) {
+			tracker.release();
+		}
+		if (event instanceof PooledEvent) {
+			((PooledEvent) event).release();
+		}
+	}
+
+	/**
+	 * Releases a chain of pending posts rejected or dropped by a full poster queue, recording them as dead letters if
+	 * enabled.
+	 *
+	 * @throws EventBusException if the backpressure policy is {@link BackpressurePolicy#FAIL}
+	 */
+	void dropPendingPosts(PendingPost dropped) {
+		releasePendingPosts(dropped);
+		if (backpressurePolicy == BackpressurePolicy.FAIL) {
+			throw new EventBusException("Poster queue is full (capacity: " + queueCapacity + "), delivery rejected");
+		}
+	}
+
+	/**
+	 * Releases a chain of pending posts whose executor rejected to run them, e.g. as it was shut down, recording them
+	 * as dead letters if enabled.
+	 *
+	 * @throws EventBusException always
+	 */
+	void rejectPendingPosts(PendingPost rejected, RejectedExecutionException cause) {
+		releasePendingPosts(rejected);
+		throw new EventBusException("Executor rejected the delivery, e.g. as it was shut down", cause);
+	}
+
+	private void releasePendingPosts(PendingPost first) {
+		PendingPost pendingPost = first;
+		while (pendingPost != null) {
+			PendingPost next = pendingPost.next;
+			Object event = pendingPost.event;
+			Subscription subscription = pendingPost.subscription;
+			PostFuture tracker = pendingPost.tracker;
+			PendingPost.releasePendingPost(pendingPost);
+			if (deadLetterStore != null) {
+				PooledEvent.detach(event);
+				deadLetterStore.add(event, subscription, null);
+			}
+			release(event, tracker);
+			pendingPost = next;
+		}
+	}
+
 	/** Looks up all Class objects including super classes and interfaces. Should also work for interfaces. */
 	private static List<Class<?>> lookupAllEventTypes(Class<?> eventClass) {
 		synchronized (eventTypesCache) {
@@ -495,31 +1351,60 @@ public class EventBus {
 	void invokeSubscriber(PendingPost pendingPost) {
 		Object event = pendingPost.event;
 		Subscription subscription = pendingPost.subscription;
+		PostFuture tracker = pendingPost.tracker;
 		PendingPost.releasePendingPost(pendingPost);
-		if (subscription.active) {
-			invokeSubscriber(subscription, event);
+		invokeQueuedSubscriber(subscription, event, tracker);
+	}
+
+	/** Like {@link #invokeSubscriber(PendingPost)} for posters not using pending posts. */
+	void invokeQueuedSubscriber(Subscription subscription, Object event, PostFuture tracker) {
+		try {
+			if (subscription.active) {
+				invokeSubscriber(subscription, event, tracker);
+			}
+		} finally {
+			if (tracker != null) {
+				tracker.release();
+			}
+			if (event instanceof PooledEvent) {
+				((PooledEvent) event).release();
+			}
 		}
 	}
 
-	void invokeSubscriber(Subscription subscription, Object event) {
+	/** @param tracker if not null, a failure of the subscriber is also reported to this tracker. */
+	private void invokeSubscriber(Subscription subscription, Object event, PostFuture tracker) {
+		if (circuitBreakerEnabled && failureMonitor.isSuspended(subscription)) {
+			return;
+		}
 		try {
 			//反射调用订阅者的响应方法
 			subscription.subscriberMethod.method.invoke(subscription.subscriber, event);
+			if (circuitBreakerEnabled) {
+				failureMonitor.onSuccess(subscription);
+			}
 		} catch (InvocationTargetException e) {
-			handleSubscriberException(subscription, event, e.getCause());
+			Throwable cause = e.getCause();
+			// Kept by the SubscriberExceptionEvent or the dead letter
+			PooledEvent.detach(event);
+			if (tracker != null) {
+				tracker.addExceptionEvent(new SubscriberExceptionEvent(this, cause, event, subscription.subscriber));
+			}
+			handleSubscriberException(subscription, event, cause);
 		} catch (IllegalAccessException e) {
 			throw new IllegalStateException("Unexpected exception", e);
 		}
 	}
 
 	private void handleSubscriberException(Subscription subscription, Object event, Throwable cause) {
+		boolean logInFull = failureMonitor == null || failureMonitor.onFailure(subscription, cause);
 		if (event instanceof SubscriberExceptionEvent) {
-			if (logSubscriberExceptions) {
+			if (logSubscriberExceptions && logInFull) {
 				// Don't send another SubscriberExceptionEvent to avoid infinite event recursion, just log
-				Log.e(TAG, "SubscriberExceptionEvent subscriber " + subscription.subscriber.getClass()
+				logger.log(Level.SEVERE, "SubscriberExceptionEvent subscriber " + subscription.subscriber.getClass()
 						+ " threw an exception", cause);
 				SubscriberExceptionEvent exEvent = (SubscriberExceptionEvent) event;
-				Log.e(TAG,
+				logger.log(Level.SEVERE,
 						"Initial event " + exEvent.causingEvent + " caused exception in " + exEvent.causingSubscriber,
 						exEvent.throwable);
 			}
@@ -527,11 +1412,13 @@ public class EventBus {
 			if (throwSubscriberException) {
 				throw new EventBusException("Invoking subscriber failed", cause);
 			}
-			if (logSubscriberExceptions) {
-				Log.e(TAG, "Could not dispatch event: " + event.getClass() + " to subscribing class "
+			if (logSubscriberExceptions && logInFull) {
+				logger.log(Level.SEVERE, "Could not dispatch event: " + event.getClass() + " to subscribing class "
 						+ subscription.subscriber.getClass(), cause);
 			}
-			if (sendSubscriberExceptionEvent) {
+			if (deadLetterStore != null) {
+				deadLetterStore.add(event, subscription, cause);
+			} else if (sendSubscriberExceptionEvent) {
 				SubscriberExceptionEvent exEvent = new SubscriberExceptionEvent(this, cause, event,
 						subscription.subscriber);
 				post(exEvent);
@@ -547,14 +1434,146 @@ public class EventBus {
 		Subscription subscription;//订阅信息（包括订阅者、订阅方法）
 		Object event;//订阅的事件类型
 		boolean canceled;//是否取消
+		boolean batching;//是否在postAll中收集排队的事件
+		final PendingPostBatch mainThreadBatch = new PendingPostBatch();
+		final PendingPostBatch backgroundBatch = new PendingPostBatch();
+		final PendingPostBatch asyncBatch = new PendingPostBatch();
+		PostFuture tracker;//postAndTrack中正在分发的事件的追踪器
+		boolean rejectIfFull;//是否在tryPost中，队列已满时拒绝投递
+		boolean rejected;//tryPost中是否有投递被拒绝
+	}
+
+	/** Returns the channel for int values with the given name, creating it on first use. */
+	public IntChannel intChannel(String name) {
+		synchronized (channels) {
+			PrimitiveChannel channel = channels.get(name);
+			if (channel == null) {
+				channel = new IntChannel(this, name);
+				channels.put(name, channel);
+			}
+			return checkChannelType(channel, IntChannel.class);
+		}
+	}
+
+	/** Returns the channel for long values with the given name, creating it on first use. */
+	public LongChannel longChannel(String name) {
+		synchronized (channels) {
+			PrimitiveChannel channel = channels.get(name);
+			if (channel == null) {
+				channel = new LongChannel(this, name);
+				channels.put(name, channel);
+			}
+			return checkChannelType(channel, LongChannel.class);
+		}
+	}
+
+	/** Returns the channel for double values with the given name, creating it on first use. */
+	public DoubleChannel doubleChannel(String name) {
+		synchronized (channels) {
+			PrimitiveChannel channel = channels.get(name);
+			if (channel == null) {
+				channel = new DoubleChannel(this, name);
+				channels.put(name, channel);
+			}
+			return checkChannelType(channel, DoubleChannel.class);
+		}
+	}
+
+	private <T extends PrimitiveChannel> T checkChannelType(PrimitiveChannel channel, Class<T> channelClass) {
+		if (!channelClass.isInstance(channel)) {
+			throw new EventBusException("Channel " + channel.getName() + " is a " + channel.getClass().getSimpleName()
+					+ ", not a " + channelClass.getSimpleName());
+		}
+		return channelClass.cast(channel);
+	}
+
+	void handleChannelSubscriberException(PrimitiveChannel channel, Object subscriber, Object value, Throwable cause) {
+		if (throwSubscriberException) {
+			throw new EventBusException("Invoking subscriber failed", cause);
+		}
+		if (logSubscriberExceptions) {
+			logger.log(Level.SEVERE, "Could not dispatch value " + value + " of channel " + channel.getName()
+					+ " to subscribing class " + subscriber.getClass(), cause);
+		}
+		if (sendSubscriberExceptionEvent) {
+			post(new SubscriberExceptionEvent(this, cause, value, subscriber));
+		}
+	}
+
+	/**
+	 * Returns the store of events that could not be delivered, or null if not enabled by
+	 * {@link EventBusBuilder#deadLetterCapacity(int)}.
+	 */
+	public DeadLetterStore getDeadLetterStore() {
+		return deadLetterStore;
+	}
+
+	/** Shuts down the ForkJoinPool this bus created for ASYNC subscribers, if any; queued deliveries still run. */
+	void shutdownAsyncForkJoinPool() {
+		if (asyncForkJoinPool != null) {
+			asyncForkJoinPool.shutdown();
+		}
+	}
+
+	/** Delivers the event again to the given subscription only, if it is still registered. */
+	void redeliver(Subscription subscription, Object event) {
+		if (subscription.active) {
+			deliverToSubscription(subscription, event, isMainThread(), null, null);
+		}
+	}
+
+	boolean isMainThread() {
+		return mainThreadSupport.isMainThread();
+	}
+
+	MainThreadSupport getMainThreadSupport() {
+		return mainThreadSupport;
+	}
+
+	public Logger getLogger() {
+		return logger;
+	}
+
+	private static PosterWatchdog.Slot createWatchdogSlot(PosterWatchdog watchdog, String posterName) {
+		return watchdog != null ? watchdog.createSlot(posterName) : null;
+	}
+
+	PendingPostQueue createPendingPostQueue() {
+		return new PendingPostQueue(prioritizeQueuedDeliveries, priorityAgingNanos, queueCapacity, backpressurePolicy);
 	}
 
 	ExecutorService getExecutorService() {
 		return executorService;
 	}
 
-	// Just an idea: we could provide a callback to post() to be notified, an alternative would be events, of course...
-	/* public */interface PostCallback {
+	PrimitiveChannel.SerialExecutor getChannelBackgroundExecutor() {
+		synchronized (channels) {
+			if (channelBackgroundExecutor == null) {
+				channelBackgroundExecutor = new PrimitiveChannel.SerialExecutor(executorService);
+			}
+			return channelBackgroundExecutor;
+		}
+	}
+
+	/** Wraps an event posted by {@link #postAndTrack(Object)} in the posting thread's event queue. */
+	private static final class TrackedPost {
+		final Object event;
+		final PostFuture tracker;
+
+		TrackedPost(Object event, PostFuture tracker) {
+			this.event = event;
+			this.tracker = tracker;
+		}
+	}
+
+	/** Creates events posted by {@link #post(Class, EventSupplier)}. */
+	public interface EventSupplier<E> {
+		E get();
+	}
+
+	/** Notified once all subscribers of an event posted by {@link #postAndTrack(Object)} have finished. */
+	public interface PostCallback {
+		/** @param exceptionEvents exceptions thrown by subscribers; empty if all succeeded. */
 		void onPostCompleted(List<SubscriberExceptionEvent> exceptionEvents);
 	}
 
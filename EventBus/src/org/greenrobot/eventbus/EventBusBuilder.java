@@ -15,10 +15,14 @@
  */
 package org.greenrobot.eventbus;
 
+import android.os.Looper;
+
 import org.greenrobot.eventbus.meta.SubscriberInfoIndex;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -28,6 +32,8 @@ import java.util.concurrent.Executors;
  */
 public class EventBusBuilder {
     private final static ExecutorService DEFAULT_EXECUTOR_SERVICE = Executors.newCachedThreadPool();
+    /** The main thread of all EventBus instances without Android's main looper; created on first use. */
+    private static volatile MainThreadSupport defaultEventLoop;
 
     boolean logSubscriberExceptions = true;
     boolean logNoSubscriberMessages = true;
@@ -38,19 +44,40 @@ public class EventBusBuilder {
     boolean ignoreGeneratedIndex;
     boolean strictMethodVerification;
     ExecutorService executorService = DEFAULT_EXECUTOR_SERVICE;
+    int asyncParallelism;
+    Map<String, ExecutorService> namedExecutors;
+    int ringBufferCapacity;
+    boolean prioritizeQueuedDeliveries;
+    long priorityAgingMillis;
+    long watchdogBudgetMillis;
+    int queueCapacity;
+    BackpressurePolicy backpressurePolicy;
+    RingBufferWaitStrategy ringBufferWaitStrategy;
+    EventJournal journal;
+    int deadLetterCapacity;
+    long subscriberExceptionSummaryMillis;
+    int circuitBreakerFailures;
+    long circuitBreakerSuspendMillis;
     List<Class<?>> skipMethodVerificationForClasses;
     List<SubscriberInfoIndex> subscriberInfoIndexes;
+    Logger logger;
+    MainThreadSupport mainThreadSupport;
 
     EventBusBuilder() {
     }
 
-    /** Default: true */
+    /** Logs subscriber exceptions at level SEVERE (default: true). */
     public EventBusBuilder logSubscriberExceptions(boolean logSubscriberExceptions) {
         this.logSubscriberExceptions = logSubscriberExceptions;
         return this;
     }
 
-    /** Default: true */
+    /**
+     * Logs events without subscribers at level FINE (default: true), once per event class; further unmatched posts of
+     * that class only cost a map lookup. Like all log categories, this is also switched off if the
+     * {@link #logger(Logger)} does not log the level when the EventBus is built; posting such events does not build log
+     * messages then.
+     */
     public EventBusBuilder logNoSubscriberMessages(boolean logNoSubscriberMessages) {
         this.logNoSubscriberMessages = logNoSubscriberMessages;
         return this;
@@ -103,6 +130,131 @@ public class EventBusBuilder {
         return this;
     }
 
+    /**
+     * Registers an executor under the given name; subscriber methods select it by {@link Subscribe#executor()}. This
+     * allows to isolate workloads (e.g. CPU, disk or network bound subscribers) in executors sized for them. Each
+     * named executor gets its own background queue.
+     */
+    public EventBusBuilder executor(String name, ExecutorService executorService) {
+        if (name == null || name.length() == 0) {
+            throw new EventBusException("Executor name must not be empty");
+        }
+        if (namedExecutors == null) {
+            namedExecutors = new HashMap<>();
+        }
+        namedExecutors.put(name, executorService);
+        return this;
+    }
+
+    /**
+     * Delivers events to {@link ThreadMode#ASYNC} subscribers using a {@link java.util.concurrent.ForkJoinPool} in
+     * async mode with the given parallelism instead of the executor service (default: 0, disabled). Events posted in
+     * a worker thread, e.g. by an ASYNC subscriber, are delivered via the worker's local queue and are stolen by idle
+     * workers, which avoids contention on a single shared queue. This requires an unbounded queue without priorities:
+     * with {@link #queueCapacity(int, BackpressurePolicy)} or {@link #prioritizeQueuedDeliveries(boolean)}, the pool
+     * takes the events from the shared queue like any executor. Each EventBus creates its own pool; its worker threads
+     * are daemon threads terminating when idle. {@link PartitionedEventBus#shutdown()} shuts the pools down.
+     */
+    public EventBusBuilder asyncForkJoinPool(int parallelism) {
+        this.asyncParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Delivers events to {@link ThreadMode#BACKGROUND} subscribers using a pre-allocated ring buffer of the given
+     * capacity (rounded up to a power of two) instead of a linked queue (default: disabled). The ring buffer is
+     * consumed by a dedicated thread, which waits for new events using the given strategy; posting threads wait while
+     * the ring buffer is full.
+     */
+    public EventBusBuilder backgroundRingBuffer(int capacity, RingBufferWaitStrategy waitStrategy) {
+        this.ringBufferCapacity = capacity;
+        this.ringBufferWaitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * Lets queued deliveries (main thread, background and async) of subscriber methods with a positive
+     * {@link Subscribe#priority()} overtake deliveries with priority 0, which overtake those with a negative priority
+     * (default: false, queued deliveries are FIFO). Deliveries with the same sign of priority stay FIFO. Not supported
+     * by {@link #backgroundRingBuffer(int, RingBufferWaitStrategy)}.
+     */
+    public EventBusBuilder prioritizeQueuedDeliveries(boolean prioritizeQueuedDeliveries) {
+        this.prioritizeQueuedDeliveries = prioritizeQueuedDeliveries;
+        return this;
+    }
+
+    /**
+     * With {@link #prioritizeQueuedDeliveries(boolean)}, a lower priority delivery waiting longer than the given time
+     * is delivered before higher priority ones to avoid starvation (default: 0, no aging).
+     */
+    public EventBusBuilder priorityAgingMillis(long priorityAgingMillis) {
+        this.priorityAgingMillis = priorityAgingMillis;
+        return this;
+    }
+
+    /**
+     * Bounds the queue of each poster (main thread, background, async, and those of named executors) to the given
+     * capacity (default: 0, unbounded). Once a queue is full, new deliveries are handled according to the given
+     * policy; {@link EventBus#tryPost(Object)} rejects them instead. Not applied to async deliveries using a
+     * ForkJoinPool.
+     */
+    public EventBusBuilder queueCapacity(int capacity, BackpressurePolicy policy) {
+        if (capacity > 0 && policy == null) {
+            throw new EventBusException("Backpressure policy required");
+        }
+        this.queueCapacity = capacity;
+        this.backpressurePolicy = policy;
+        return this;
+    }
+
+    /**
+     * Enables a watchdog logging deliveries of the main thread and background posters that take longer than the given
+     * budget, with a stack sample of the delivering thread, and main thread backlogs not drained within the budget
+     * (default: 0, disabled). Costs a few volatile writes per queued delivery.
+     */
+    public EventBusBuilder watchdog(long budgetMillis) {
+        this.watchdogBudgetMillis = budgetMillis;
+        return this;
+    }
+
+    /**
+     * Aggregates the logging of subscriber exceptions per subscription (default: 0, every exception is logged in
+     * full). The first exception of a subscription is logged in full; following ones are only counted and logged as
+     * a summary once per the given interval, as long as the subscription keeps failing. Requires
+     * {@link #logSubscriberExceptions(boolean)}.
+     */
+    public EventBusBuilder aggregateSubscriberExceptions(long summaryIntervalMillis) {
+        this.subscriberExceptionSummaryMillis = summaryIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Suspends a subscription for the given time after it failed the given number of times in a row (default:
+     * disabled). Deliveries to a suspended subscription are skipped. After the suspension, a single failure suspends
+     * the subscription again, while a successful delivery resets the failure count.
+     */
+    public EventBusBuilder subscriberCircuitBreaker(int maxConsecutiveFailures, long suspendMillis) {
+        this.circuitBreakerFailures = maxConsecutiveFailures;
+        this.circuitBreakerSuspendMillis = suspendMillis;
+        return this;
+    }
+
+    /**
+     * Records undeliverable events in a {@link DeadLetterStore} of the given capacity (default: 0, disabled). When
+     * enabled, EventBus does not post {@link NoSubscriberEvent}s and {@link SubscriberExceptionEvent}s; the dead
+     * letters are recorded in the store instead, see {@link EventBus#getDeadLetterStore()}.
+     */
+    public EventBusBuilder deadLetterCapacity(int deadLetterCapacity) {
+        this.deadLetterCapacity = deadLetterCapacity;
+        return this;
+    }
+
+    /** Sets a journal receiving all posted events before they are dispatched (default: none). */
+    public EventBusBuilder journal(EventJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+
     /**
      * Method name verification is done for methods starting with onEvent to avoid typos; using this method you can
      * exclude subscriber classes from this check. Also disables checks for method modifiers (public, not static nor
@@ -137,6 +289,68 @@ public class EventBusBuilder {
         return this;
     }
 
+    /**
+     * Set a specific log handler for all EventBus logging (default: Android's log on Android, otherwise System.out for
+     * INFO and above, see {@link Logger.Default#get()}).
+     */
+    public EventBusBuilder logger(Logger logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * Defines the thread {@link ThreadMode#MAIN} subscribers are called in (default: Android's main thread on
+     * Android). On plain JVMs, the default is a {@link MainThreadSupport.EventLoopMainThreadSupport} running in the
+     * daemon thread "EventBus main", shared by all EventBus instances like Android's main thread.
+     */
+    public EventBusBuilder mainThreadSupport(MainThreadSupport mainThreadSupport) {
+        this.mainThreadSupport = mainThreadSupport;
+        return this;
+    }
+
+    Logger getLogger() {
+        if (logger != null) {
+            return logger;
+        } else {
+            return Logger.Default.get();
+        }
+    }
+
+    MainThreadSupport getMainThreadSupport() {
+        if (mainThreadSupport != null) {
+            return mainThreadSupport;
+        } else if (Logger.AndroidLogger.isAndroidLogAvailable()) {
+            Object looperOrNull = getAndroidMainLooperOrNull();
+            if (looperOrNull != null) {
+                return new MainThreadSupport.AndroidHandlerMainThreadSupport((Looper) looperOrNull);
+            }
+        }
+        return getDefaultEventLoop();
+    }
+
+    private static MainThreadSupport getDefaultEventLoop() {
+        if (defaultEventLoop == null) {
+            synchronized (EventBusBuilder.class) {
+                if (defaultEventLoop == null) {
+                    defaultEventLoop = new MainThreadSupport.EventLoopMainThreadSupport("EventBus main");
+                }
+            }
+        }
+        return defaultEventLoop;
+    }
+
+    static Object getAndroidMainLooperOrNull() {
+        try {
+            return Looper.getMainLooper();
+        } catch (RuntimeException e) {
+            // Not really a functional Android (e.g. "Stub!" maven dependencies)
+            return null;
+        } catch (LinkageError e) {
+            // No Android classes at all
+            return null;
+        }
+    }
+
     /**
      * Installs the default EventBus returned by {@link EventBus#getDefault()} using this builders' values. Must be
      * done only once before the first usage of the default EventBus.
@@ -159,4 +373,12 @@ public class EventBusBuilder {
         return new EventBus(this);
     }
 
+    /**
+     * Builds a {@link PartitionedEventBus} of the given number of EventBus partitions based on the current
+     * configuration. Each partition uses its own thread pool instead of the {@link #executorService(ExecutorService)}.
+     */
+    public PartitionedEventBus buildPartitioned(int partitionCount, PartitionedEventBus.KeyExtractor keyExtractor) {
+        return new PartitionedEventBus(this, partitionCount, keyExtractor);
+    }
+
 }
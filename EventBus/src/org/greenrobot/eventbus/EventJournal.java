@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * Receives every posted event before it is dispatched, e.g. to record selected event types for crash recovery or
+ * debugging. Set it using {@link EventBusBuilder#journal(EventJournal)}, or add it to a running bus using
+ * {@link EventBus#addJournal(EventJournal)}.
+ *
+ * @see org.greenrobot.eventbus.journal.MappedEventJournal
+ */
+public interface EventJournal {
+    /**
+     * Called by the posting thread for each posted event (also events posted by subscribers). Implementations must
+     * return quickly and must not block on disk I/O.
+     */
+    void append(Object event);
+}
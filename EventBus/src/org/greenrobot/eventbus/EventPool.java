@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Pool of recycled events of a single type. Events obtained by {@link #obtain()} have a reference count of one, which
+ * is handed over to EventBus by posting the event. Once the last subscriber finished, the event is
+ * {@link PooledEvent#reset() reset} and returned to the pool; in steady state, posting pooled events does not
+ * allocate.
+ * <p/>
+ * With leak detection enabled by passing a logger, e.g. {@link EventBus#getLogger()}, the pool tracks obtained events
+ * using weak references and logs events garbage collected without being released, including the stack trace of the
+ * {@link #obtain()} call. Leak detection allocates per obtained event and is meant for debugging.
+ */
+public final class EventPool<T extends PooledEvent> {
+
+    /** Creates new events if the pool is empty. */
+    public interface Factory<T> {
+        T create();
+    }
+
+    private final Factory<T> factory;
+    // Stack guarded by this
+    private final Object[] pooledEvents;
+    private int size;
+
+    private final boolean detectLeaks;
+    private final ReferenceQueue<PooledEvent> leakQueue;
+    private final Set<LeakReference> trackedEvents;
+    private final AtomicLong leakCount = new AtomicLong();
+    /** Null unless leak detection is enabled. */
+    private final Logger leakLogger;
+
+    public EventPool(Factory<T> factory, int maxSize) {
+        this(factory, maxSize, null);
+    }
+
+    /** @param leakLogger if not null, enables leak detection and logs leaked events to this logger */
+    public EventPool(Factory<T> factory, int maxSize, Logger leakLogger) {
+        this.factory = factory;
+        pooledEvents = new Object[maxSize];
+        this.leakLogger = leakLogger;
+        detectLeaks = leakLogger != null;
+        if (detectLeaks) {
+            leakQueue = new ReferenceQueue<>();
+            trackedEvents = Collections.synchronizedSet(
+                    Collections.newSetFromMap(new IdentityHashMap<LeakReference, Boolean>()));
+        } else {
+            leakQueue = null;
+            trackedEvents = null;
+        }
+    }
+
+    /** Returns a recycled or new event with a reference count of one. */
+    public T obtain() {
+        T event = null;
+        synchronized (this) {
+            if (size > 0) {
+                @SuppressWarnings("unchecked")
+                T pooledEvent = (T) pooledEvents[--size];
+                pooledEvents[size] = null;
+                event = pooledEvent;
+            }
+        }
+        if (event == null) {
+            event = factory.create();
+        }
+        event.pool = this;
+        event.initRefCount();
+        if (detectLeaks) {
+            reportLeaks();
+            LeakReference leakReference = new LeakReference(event, leakQueue);
+            event.leakReference = leakReference;
+            trackedEvents.add(leakReference);
+        }
+        return event;
+    }
+
+    void recycle(PooledEvent event) {
+        untrack(event);
+        event.reset();
+        synchronized (this) {
+            if (size < pooledEvents.length) {
+                pooledEvents[size++] = event;
+            }
+        }
+    }
+
+    void untrack(PooledEvent event) {
+        LeakReference leakReference = event.leakReference;
+        if (leakReference != null) {
+            event.leakReference = null;
+            trackedEvents.remove(leakReference);
+            leakReference.clear();
+        }
+    }
+
+    /** Number of leaked events detected so far; always 0 if leak detection is disabled. */
+    public long getLeakCount() {
+        if (detectLeaks) {
+            reportLeaks();
+        }
+        return leakCount.get();
+    }
+
+    private void reportLeaks() {
+        LeakReference leakReference;
+        while ((leakReference = (LeakReference) leakQueue.poll()) != null) {
+            if (trackedEvents.remove(leakReference)) {
+                leakCount.incrementAndGet();
+                leakLogger.log(Level.WARNING, "Pooled event " + leakReference.eventClass
+                        + " was garbage collected without being released; obtained at:", leakReference.obtainedAt);
+            }
+        }
+    }
+
+    /** Weakly references an obtained event for leak detection. */
+    static final class LeakReference extends WeakReference<PooledEvent> {
+        final Class<?> eventClass;
+        final Throwable obtainedAt;
+
+        LeakReference(PooledEvent event, ReferenceQueue<PooledEvent> queue) {
+            super(event, queue);
+            eventClass = event.getClass();
+            obtainedAt = new Throwable("Event obtained");
+        }
+    }
+}
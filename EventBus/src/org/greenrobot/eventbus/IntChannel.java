@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * A {@link PrimitiveChannel} delivering int values, see {@link EventBus#intChannel(String)}.
+ */
+public final class IntChannel extends PrimitiveChannel {
+
+    IntChannel(EventBus eventBus, String name) {
+        super(eventBus, name);
+    }
+
+    /** Registers the given handler to be called in the posting thread. */
+    public void register(IntEventHandler handler) {
+        register(handler, ThreadMode.POSTING, 0);
+    }
+
+    /** Registers the given handler to be called in the thread determined by the given thread mode. */
+    public void register(IntEventHandler handler, ThreadMode threadMode, int priority) {
+        registerHandler(handler, threadMode, priority);
+    }
+
+    /** Posts the given value to all subscribers of this channel. */
+    public void post(int value) {
+        postBits(value);
+    }
+
+    @Override
+    Class<?> getPrimitiveType() {
+        return int.class;
+    }
+
+    @Override
+    Object box(long bits) {
+        return (int) bits;
+    }
+
+    @Override
+    void invokeHandler(Object handler, long bits) {
+        ((IntEventHandler) handler).onEvent((int) bits);
+    }
+}
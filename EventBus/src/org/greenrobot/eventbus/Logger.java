@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import android.util.Log;
+
+import java.io.PrintStream;
+import java.util.logging.Level;
+
+/**
+ * Logging abstraction of EventBus, so it runs with Android's log as well as on plain JVMs. Set a logger using
+ * {@link EventBusBuilder#logger(Logger)}; the default is given by {@link Default#get()}.
+ */
+public interface Logger {
+
+    /**
+     * Whether messages of the given level are logged. Callers check this before building expensive messages; EventBus
+     * checks the levels of its log categories once, when it is built.
+     */
+    boolean isLoggable(Level level);
+
+    void log(Level level, String msg);
+
+    void log(Level level, String msg, Throwable th);
+
+    /** Logs to Android's log; requires Android. */
+    class AndroidLogger implements Logger {
+        private static final boolean ANDROID_LOG_AVAILABLE;
+
+        static {
+            boolean android = false;
+            try {
+                android = Class.forName("android.util.Log") != null;
+            } catch (ClassNotFoundException e) {
+                // OK
+            }
+            ANDROID_LOG_AVAILABLE = android;
+        }
+
+        public static boolean isAndroidLogAvailable() {
+            return ANDROID_LOG_AVAILABLE;
+        }
+
+        private final String tag;
+
+        public AndroidLogger(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * All levels are loggable, like EventBus always logged to Android's log. Log.isLoggable is not consulted: it
+         * defaults to INFO and may change at runtime, while EventBus checks the levels once.
+         */
+        @Override
+        public boolean isLoggable(Level level) {
+            return level != Level.OFF;
+        }
+
+        @Override
+        public void log(Level level, String msg) {
+            log(level, msg, null);
+        }
+
+        @Override
+        public void log(Level level, String msg, Throwable th) {
+            if (level == Level.OFF) {
+                return;
+            }
+            switch (mapLevel(level)) {
+                case Log.VERBOSE:
+                    Log.v(tag, msg, th);
+                    break;
+                case Log.DEBUG:
+                    Log.d(tag, msg, th);
+                    break;
+                case Log.INFO:
+                    Log.i(tag, msg, th);
+                    break;
+                case Log.WARN:
+                    Log.w(tag, msg, th);
+                    break;
+                default:
+                    Log.e(tag, msg, th);
+            }
+        }
+
+        private static int mapLevel(Level level) {
+            int value = level.intValue();
+            if (value < Level.FINE.intValue()) {
+                return Log.VERBOSE;
+            } else if (value < Level.INFO.intValue()) {
+                return Log.DEBUG;
+            } else if (value < Level.WARNING.intValue()) {
+                return Log.INFO;
+            } else if (value < Level.SEVERE.intValue()) {
+                return Log.WARN;
+            } else {
+                return Log.ERROR;
+            }
+        }
+    }
+
+    /** Logs to java.util.logging. */
+    class JavaLogger implements Logger {
+        protected final java.util.logging.Logger logger;
+
+        public JavaLogger(String tag) {
+            logger = java.util.logging.Logger.getLogger(tag);
+        }
+
+        @Override
+        public boolean isLoggable(Level level) {
+            return logger.isLoggable(level);
+        }
+
+        @Override
+        public void log(Level level, String msg) {
+            logger.log(level, msg);
+        }
+
+        @Override
+        public void log(Level level, String msg, Throwable th) {
+            logger.log(level, msg, th);
+        }
+    }
+
+    /** Logs to System.out, or System.err for warnings and errors. */
+    class SystemOutLogger implements Logger {
+        private final int minLevel;
+
+        /** Logs all levels. */
+        public SystemOutLogger() {
+            this(Level.ALL);
+        }
+
+        /** Logs the given level and above. */
+        public SystemOutLogger(Level minLevel) {
+            this.minLevel = minLevel.intValue();
+        }
+
+        @Override
+        public boolean isLoggable(Level level) {
+            return level != Level.OFF && level.intValue() >= minLevel;
+        }
+
+        @Override
+        public void log(Level level, String msg) {
+            log(level, msg, null);
+        }
+
+        @Override
+        public void log(Level level, String msg, Throwable th) {
+            if (!isLoggable(level)) {
+                return;
+            }
+            PrintStream out = level.intValue() >= Level.WARNING.intValue() ? System.err : System.out;
+            out.println("[" + level + "] " + EventBus.TAG + ": " + msg);
+            if (th != null) {
+                th.printStackTrace(out);
+            }
+        }
+    }
+
+    class Default {
+        /**
+         * Android's log if running on Android, otherwise a {@link SystemOutLogger} for {@link Level#INFO} and above, so
+         * debug messages like those about events without subscribers do not flood System.out.
+         */
+        public static Logger get() {
+            if (AndroidLogger.isAndroidLogAvailable() && EventBusBuilder.getAndroidMainLooperOrNull() != null) {
+                return new AndroidLogger(EventBus.TAG);
+            }
+            return new SystemOutLogger(Level.INFO);
+        }
+    }
+}
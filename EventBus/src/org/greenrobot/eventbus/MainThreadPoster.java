@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts events to the main thread given by a {@link MainThreadSupport}, e.g. Android's main looper. Runs as a single
+ * task in the main thread until the queue is drained or maxMillisInsideHandleMessage have passed; in the latter case,
+ * it posts itself again to give other tasks of the main thread a chance.
+ */
+final class MainThreadPoster implements Poster, Runnable {
+
+	/** Also guards the state of this poster, see {@link PendingPostQueue#enqueue(PendingPost, boolean)}. */
+	private final PendingPostQueue queue;
+	private final int maxMillisInsideHandleMessage;
+	private final EventBus eventBus;
+	private final MainThreadSupport mainThreadSupport;
+	/** Null unless the watchdog is enabled. */
+	private final PosterWatchdog.Slot watchdogSlot;
+	private boolean handlerActive;
+
+	MainThreadPoster(EventBus eventBus, MainThreadSupport mainThreadSupport, int maxMillisInsideHandleMessage,
+			PosterWatchdog.Slot watchdogSlot) {
+		this.eventBus = eventBus;
+		this.mainThreadSupport = mainThreadSupport;
+		this.maxMillisInsideHandleMessage = maxMillisInsideHandleMessage;
+		this.watchdogSlot = watchdogSlot;
+		queue = eventBus.createPendingPostQueue();
+	}
+
+	@Override
+	public void enqueue(Subscription subscription, Object event, PostFuture tracker) {
+		if (subscription.subscriberMethod.conflate) {
+			enqueueConflated(subscription, event, tracker, false);
+			return;
+		}
+		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+		synchronized (queue) {
+			PendingPost dropped = queue.enqueue(pendingPost, mayBlock());
+			if (dropped != pendingPost) {
+				sendMessageIfInactive();
+			}
+			if (dropped != null) {
+				drop(dropped);
+			}
+		}
+	}
+
+	@Override
+	public boolean tryEnqueue(Subscription subscription, Object event, PostFuture tracker) {
+		if (subscription.subscriberMethod.conflate) {
+			return enqueueConflated(subscription, event, tracker, true);
+		}
+		PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+		synchronized (queue) {
+			if (!queue.tryEnqueue(pendingPost)) {
+				PendingPost.releasePendingPost(pendingPost);
+				return false;
+			}
+			sendMessageIfInactive();
+		}
+		return true;
+	}
+
+	/** Enqueues all pending posts of the batch and sends at most one message. */
+	@Override
+	public void enqueueAll(PendingPostBatch batch) {
+		synchronized (queue) {
+			// Before enqueuing, as the main thread may have to free capacity for the batch
+			sendMessageIfInactive();
+			PendingPost dropped = queue.enqueueAll(batch.head, batch.tail, mayBlock());
+			if (dropped != null) {
+				drop(dropped);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the event of a still queued delivery to the subscription, or enqueues a new one.
+	 *
+	 * @return false if rejected because the queue is full and tryOnly is set
+	 */
+	private boolean enqueueConflated(Subscription subscription, Object event, PostFuture tracker, boolean tryOnly) {
+		Object replacedEvent;
+		PostFuture replacedTracker;
+		synchronized (queue) {
+			PendingPost pendingPost = subscription.conflatedPendingPost;
+			if (pendingPost == null) {
+				pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+				if (tryOnly) {
+					if (!queue.tryEnqueue(pendingPost)) {
+						PendingPost.releasePendingPost(pendingPost);
+						return false;
+					}
+					subscription.conflatedPendingPost = pendingPost;
+					sendMessageIfInactive();
+					return true;
+				}
+				subscription.conflatedPendingPost = pendingPost;
+				PendingPost dropped = queue.enqueue(pendingPost, mayBlock());
+				if (dropped != pendingPost) {
+					sendMessageIfInactive();
+				}
+				if (dropped != null) {
+					drop(dropped);
+				}
+				return true;
+			}
+			replacedEvent = pendingPost.event;
+			pendingPost.event = event;
+			replacedTracker = pendingPost.tracker;
+			pendingPost.tracker = tracker;
+		}
+		// The replaced event will never be delivered
+		if (replacedTracker != null) {
+			replacedTracker.release();
+		}
+		if (replacedEvent instanceof PooledEvent) {
+			((PooledEvent) replacedEvent).release();
+		}
+		return true;
+	}
+
+	/** The main thread must not wait for capacity only it can free. */
+	private boolean mayBlock() {
+		return !queue.isBlocking() || !mainThreadSupport.isMainThread();
+	}
+
+	// Must be called in synchronized block
+	private void drop(PendingPost dropped) {
+		for (PendingPost pendingPost = dropped; pendingPost != null; pendingPost = pendingPost.next) {
+			if (pendingPost.subscription.conflatedPendingPost == pendingPost) {
+				pendingPost.subscription.conflatedPendingPost = null;
+			}
+		}
+		eventBus.dropPendingPosts(dropped);
+	}
+
+	// Must be called in synchronized block
+	private void sendMessageIfInactive() {
+		if (!handlerActive) {
+			handlerActive = true;
+			if (!mainThreadSupport.post(this)) {
+				throw new EventBusException("Could not post to main thread");
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		boolean rescheduled = false;
+		try {
+			long started = System.nanoTime();
+			while (true) {
+				PendingPost pendingPost = queue.poll();
+				if (pendingPost == null) {
+					synchronized (queue) {
+						// Check again, this time in synchronized
+						pendingPost = queue.poll();
+						if (pendingPost == null) {
+							handlerActive = false;
+							if (watchdogSlot != null) {
+								watchdogSlot.clearBacklog();
+							}
+							return;
+						}
+					}
+				}
+				if (pendingPost.subscription.subscriberMethod.conflate) {
+					synchronized (queue) {
+						// From now on, newer events go into a new pending post
+						pendingPost.subscription.conflatedPendingPost = null;
+					}
+				}
+				//反射执行订阅者的响应方法
+				if (watchdogSlot != null) {
+					watchdogSlot.begin(pendingPost.subscription);
+				}
+				try {
+					eventBus.invokeSubscriber(pendingPost);
+				} finally {
+					if (watchdogSlot != null) {
+						watchdogSlot.end();
+					}
+				}
+				long timeInMethod = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+				if (timeInMethod >= maxMillisInsideHandleMessage) {
+					if (!mainThreadSupport.post(this)) {
+						throw new EventBusException("Could not post to main thread");
+					}
+					rescheduled = true;
+					if (watchdogSlot != null) {
+						watchdogSlot.markBacklog();
+					}
+					return;
+				}
+			}
+		} finally {
+			handlerActive = rescheduled;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Defines the "main" thread of {@link ThreadMode#MAIN}: Android's main looper by default, or a single threaded event
+ * loop on plain JVMs. Set using {@link EventBusBuilder#mainThreadSupport(MainThreadSupport)}.
+ */
+public interface MainThreadSupport {
+
+    boolean isMainThread();
+
+    /**
+     * Runs the given task in the main thread asynchronously, like {@link Handler#post(Runnable)}.
+     *
+     * @return false if the task could not be scheduled
+     */
+    boolean post(Runnable task);
+
+    /** Uses the thread of an Android looper, usually the main looper. */
+    class AndroidHandlerMainThreadSupport implements MainThreadSupport {
+        private final Looper looper;
+        private final Handler handler;
+
+        public AndroidHandlerMainThreadSupport(Looper looper) {
+            this.looper = looper;
+            handler = new Handler(looper);
+        }
+
+        @Override
+        public boolean isMainThread() {
+            return looper == Looper.myLooper();
+        }
+
+        @Override
+        public boolean post(Runnable task) {
+            return handler.post(task);
+        }
+    }
+
+    /**
+     * Uses a single threaded event loop, e.g. on servers. Other code may run its own tasks on the loop using
+     * {@link #getExecutorService()}; they are then called in the same thread as MAIN subscribers.
+     */
+    class EventLoopMainThreadSupport implements MainThreadSupport {
+        private final ExecutorService executorService;
+        private volatile Thread thread;
+
+        /** Starts an event loop running in a daemon thread with the given name. */
+        public EventLoopMainThreadSupport(final String threadName) {
+            executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread newThread = new Thread(runnable, threadName);
+                    newThread.setDaemon(true);
+                    thread = newThread;
+                    return newThread;
+                }
+            });
+        }
+
+        public ExecutorService getExecutorService() {
+            return executorService;
+        }
+
+        @Override
+        public boolean isMainThread() {
+            return Thread.currentThread() == thread;
+        }
+
+        @Override
+        public boolean post(Runnable task) {
+            try {
+                executorService.execute(task);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+    }
+}
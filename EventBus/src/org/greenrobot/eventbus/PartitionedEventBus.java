@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Facade over a fixed number of independent EventBus partitions, e.g. one per CPU core. Each partition has its own
+ * registry, posters and executor. Partitions only share what is given to the builder, e.g. the main thread, named
+ * executors ({@link EventBusBuilder#executor(String, ExecutorService)}) and the journal. Events are routed to a single
+ * partition by the key given by a {@link KeyExtractor}; events with the same key always go to the same partition,
+ * which keeps their order for BACKGROUND subscribers.
+ * <p/>
+ * Subscribers register either globally, receiving the events of all partitions, or to the partition of a key. Create
+ * instances using {@link EventBusBuilder#buildPartitioned(int, KeyExtractor)}.
+ */
+public class PartitionedEventBus {
+
+    /** Extracts the routing key of an event. */
+    public interface KeyExtractor {
+        /** @return the routing key of the event; null routes the event to the first partition. */
+        Object getKey(Object event);
+    }
+
+    private final EventBus[] partitions;
+    private final ExecutorService[] executorServices;
+    private final KeyExtractor keyExtractor;
+
+    PartitionedEventBus(EventBusBuilder builder, int partitionCount, KeyExtractor keyExtractor) {
+        if (partitionCount <= 0) {
+            throw new EventBusException("Partition count must be positive: " + partitionCount);
+        }
+        if (keyExtractor == null) {
+            throw new EventBusException("Key extractor required");
+        }
+        this.keyExtractor = keyExtractor;
+        partitions = new EventBus[partitionCount];
+        executorServices = new ExecutorService[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            executorServices[i] = Executors.newCachedThreadPool(new PartitionThreadFactory(i));
+            partitions[i] = new EventBus(builder, executorServices[i]);
+        }
+    }
+
+    /** Registers the given subscriber to all partitions; it receives all events. */
+    public void register(Object subscriber) {
+        for (EventBus partition : partitions) {
+            partition.register(subscriber);
+        }
+    }
+
+    /** Registers the given subscriber to the partition of the given key only. */
+    public void register(Object subscriber, Object key) {
+        getPartition(key).register(subscriber);
+    }
+
+    /** Unregisters the given subscriber from all partitions it is registered to. */
+    public void unregister(Object subscriber) {
+        for (EventBus partition : partitions) {
+            if (partition.isRegistered(subscriber)) {
+                partition.unregister(subscriber);
+            }
+        }
+    }
+
+    public boolean isRegistered(Object subscriber) {
+        for (EventBus partition : partitions) {
+            if (partition.isRegistered(subscriber)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Posts the given event to the partition of its key. */
+    public void post(Object event) {
+        getPartition(keyExtractor.getKey(event)).post(event);
+    }
+
+    /** Like {@link #post(Object)}, but see {@link EventBus#tryPost(Object)}. */
+    public boolean tryPost(Object event) {
+        return getPartition(keyExtractor.getKey(event)).tryPost(event);
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /** The partition of the given key, e.g. to post sticky events or to use other features of EventBus. */
+    public EventBus getPartition(Object key) {
+        if (key == null || partitions.length == 1) {
+            return partitions[0];
+        }
+        int hash = key.hashCode();
+        // Spread the higher bits as hash codes often differ in those only
+        hash ^= hash >>> 16;
+        return partitions[(hash & 0x7fffffff) % partitions.length];
+    }
+
+    public EventBus getPartitionAt(int index) {
+        return partitions[index];
+    }
+
+    /**
+     * Shuts down the executors of all partitions, including ForkJoinPools created for
+     * {@link EventBusBuilder#asyncForkJoinPool(int)}, but not named executors given to the builder; queued deliveries
+     * are still executed. Afterwards, posting an event that is to be queued to a partition's executor for BACKGROUND
+     * or ASYNC subscribers throws an {@link EventBusException}; the delivery is dropped (or kept as a dead letter).
+     */
+    public void shutdown() {
+        for (ExecutorService executorService : executorServices) {
+            executorService.shutdown();
+        }
+        for (EventBus partition : partitions) {
+            partition.shutdownAsyncForkJoinPool();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionedEventBus[partitions=" + partitions.length + "]";
+    }
+
+    private static class PartitionThreadFactory implements ThreadFactory {
+        private final int partition;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        PartitionThreadFactory(int partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "EventBus-partition-" + partition + "-"
+                    + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
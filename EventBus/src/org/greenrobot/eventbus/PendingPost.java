@@ -23,30 +23,37 @@ final class PendingPost {
 
     Object event;
     Subscription subscription;
+    PostFuture tracker;
     PendingPost next;
+    /** Time of enqueuing into a prioritized queue with aging. */
+    long enqueueNanos;
 
     private PendingPost(Object event, Subscription subscription) {
         this.event = event;
         this.subscription = subscription;
     }
 
-    static PendingPost obtainPendingPost(Subscription subscription, Object event) {
+    static PendingPost obtainPendingPost(Subscription subscription, Object event, PostFuture tracker) {
         synchronized (pendingPostPool) {
             int size = pendingPostPool.size();
             if (size > 0) {
                 PendingPost pendingPost = pendingPostPool.remove(size - 1);
                 pendingPost.event = event;
                 pendingPost.subscription = subscription;
+                pendingPost.tracker = tracker;
                 pendingPost.next = null;
                 return pendingPost;
             }
         }
-        return new PendingPost(event, subscription);
+        PendingPost pendingPost = new PendingPost(event, subscription);
+        pendingPost.tracker = tracker;
+        return pendingPost;
     }
 
     static void releasePendingPost(PendingPost pendingPost) {
         pendingPost.event = null;
         pendingPost.subscription = null;
+        pendingPost.tracker = null;
         pendingPost.next = null;
         synchronized (pendingPostPool) {
             // Don't let the pool grow indefinitely
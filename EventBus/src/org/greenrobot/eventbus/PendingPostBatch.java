@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * Chain of pending posts collected by a single thread during {@link EventBus#postAll(java.util.Collection)}, handed
+ * over to a poster at once. Not thread safe.
+ */
+final class PendingPostBatch {
+    PendingPost head;
+    PendingPost tail;
+    int size;
+
+    void add(Subscription subscription, Object event, PostFuture tracker) {
+        PendingPost pendingPost = PendingPost.obtainPendingPost(subscription, event, tracker);
+        if (tail != null) {
+            tail.next = pendingPost;
+        } else {
+            head = pendingPost;
+        }
+        tail = pendingPost;
+        size++;
+    }
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    /** Moves the pending posts to a new batch, leaving this one empty. */
+    PendingPostBatch take() {
+        PendingPostBatch batch = new PendingPostBatch();
+        batch.head = head;
+        batch.tail = tail;
+        batch.size = size;
+        clear();
+        return batch;
+    }
+
+    void clear() {
+        head = null;
+        tail = null;
+        size = 0;
+    }
+}
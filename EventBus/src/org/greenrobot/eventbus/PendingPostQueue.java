@@ -16,15 +16,164 @@
 
 package org.greenrobot.eventbus;
 
+/**
+ * Queue of pending posts; FIFO by default. A prioritized queue keeps the pending posts in three FIFO bands by the
+ * priority of their subscriber method (positive, zero and negative priority) and polls higher bands first. With aging,
+ * the oldest pending post of a lower band that waited longer than the aging time is polled first, so bulk traffic is
+ * not starved by latency-critical deliveries.
+ * <p/>
+ * A bounded queue applies its {@link BackpressurePolicy} once it holds capacity pending posts. Pending posts rejected
+ * or dropped are returned to the caller, which is responsible for releasing them.
+ */
 final class PendingPostQueue {
+    private static final int BAND_COUNT = 3;
+
     private PendingPost head;
     private PendingPost tail;
+    private int size;
+
+    /** Non-null if prioritized; band 0 holds the highest priorities. */
+    private final PendingPost[] bandHeads;
+    private final PendingPost[] bandTails;
+    private final long agingNanos;
+
+    /** 0 if unbounded. */
+    private final int capacity;
+    private final BackpressurePolicy backpressurePolicy;
+
+    PendingPostQueue() {
+        this(false, 0, 0, null);
+    }
+
+    PendingPostQueue(boolean prioritized, long agingNanos, int capacity, BackpressurePolicy backpressurePolicy) {
+        bandHeads = prioritized ? new PendingPost[BAND_COUNT] : null;
+        bandTails = prioritized ? new PendingPost[BAND_COUNT] : null;
+        this.agingNanos = agingNanos;
+        this.capacity = capacity;
+        this.backpressurePolicy = backpressurePolicy;
+    }
 
-    synchronized void enqueue(PendingPost pendingPost) {
+    /**
+     * With {@link BackpressurePolicy#BLOCK}, waits for capacity, which releases this queue's monitor. Posters therefore
+     * guard their own state by this queue, so their consumers can make progress while a producer waits.
+     *
+     * @param mayBlock false for consumer threads of the queue, which would wait for themselves; the queue exceeds its
+     * capacity instead
+     * @return the pending post rejected or dropped by the backpressure policy of a full queue: the given one
+     * ({@link BackpressurePolicy#DROP_NEWEST}, {@link BackpressurePolicy#FAIL}, or {@link BackpressurePolicy#BLOCK}
+     * if interrupted), the oldest one ({@link BackpressurePolicy#DROP_OLDEST}); null if none
+     */
+    synchronized PendingPost enqueue(PendingPost pendingPost, boolean mayBlock) {
         if (pendingPost == null) {
             throw new NullPointerException("null cannot be enqueued");
         }
-        if (tail != null) {
+        PendingPost dropped = null;
+        if (capacity > 0 && size >= capacity) {
+            dropped = applyBackpressure(pendingPost, mayBlock);
+            if (dropped == pendingPost) {
+                return dropped;
+            }
+        }
+        add(pendingPost);
+        notifyAll();
+        return dropped;
+    }
+
+    /** Enqueues the pending post unless the queue is full; never blocks nor drops other pending posts. */
+    synchronized boolean tryEnqueue(PendingPost pendingPost) {
+        if (capacity > 0 && size >= capacity) {
+            return false;
+        }
+        add(pendingPost);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Enqueues a chain of pending posts linked by {@link PendingPost#next}, waking up waiting threads only once. The
+     * consumer must be running before, as it may have to free capacity for the chain.
+     *
+     * @return the chain of pending posts rejected or dropped by the backpressure policy, see
+     * {@link #enqueue(PendingPost, boolean)}; null if none
+     */
+    synchronized PendingPost enqueueAll(PendingPost first, PendingPost last, boolean mayBlock) {
+        if (bandHeads != null || capacity > 0) {
+            PendingPost droppedHead = null;
+            PendingPost droppedTail = null;
+            PendingPost pendingPost = first;
+            while (pendingPost != null) {
+                PendingPost next = pendingPost.next;
+                pendingPost.next = null;
+                PendingPost dropped = null;
+                if (capacity > 0 && size >= capacity) {
+                    dropped = applyBackpressure(pendingPost, mayBlock);
+                }
+                if (dropped != pendingPost) {
+                    add(pendingPost);
+                }
+                if (dropped != null) {
+                    if (droppedTail != null) {
+                        droppedTail.next = dropped;
+                    } else {
+                        droppedHead = dropped;
+                    }
+                    droppedTail = dropped;
+                }
+                pendingPost = next;
+            }
+            notifyAll();
+            return droppedHead;
+        } else if (tail != null) {
+            tail.next = first;
+            tail = last;
+        } else if (head == null) {
+            head = first;
+            tail = last;
+        } else {
+            throw new IllegalStateException("Head present, but no tail");
+        }
+        for (PendingPost pendingPost = first; pendingPost != null; pendingPost = pendingPost.next) {
+            size++;
+        }
+        notifyAll();
+        return null;
+    }
+
+    // Must be called in synchronized block
+    private PendingPost applyBackpressure(PendingPost pendingPost, boolean mayBlock) {
+        switch (backpressurePolicy) {
+            case BLOCK:
+                if (!mayBlock) {
+                    return null;
+                }
+                // Wakes up consumers waiting for pending posts added by enqueueAll so far
+                notifyAll();
+                try {
+                    while (size >= capacity) {
+                        wait();
+                    }
+                    return null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return pendingPost;
+                }
+            case DROP_OLDEST:
+                PendingPost oldest = bandHeads != null ? pollLowestBand() : poll();
+                oldest.next = null;
+                return oldest;
+            case DROP_NEWEST:
+            case FAIL:
+                return pendingPost;
+            default:
+                throw new IllegalStateException("Unknown backpressure policy: " + backpressurePolicy);
+        }
+    }
+
+    // Must be called in synchronized block
+    private void add(PendingPost pendingPost) {
+        if (bandHeads != null) {
+            enqueueToBand(pendingPost);
+        } else if (tail != null) {
             tail.next = pendingPost;
             tail = pendingPost;
         } else if (head == null) {
@@ -32,22 +181,117 @@ final class PendingPostQueue {
         } else {
             throw new IllegalStateException("Head present, but no tail");
         }
-        notifyAll();
+        size++;
+    }
+
+    // Must be called in synchronized block
+    private void enqueueToBand(PendingPost pendingPost) {
+        int priority = pendingPost.subscription.subscriberMethod.priority;
+        int band = priority > 0 ? 0 : priority == 0 ? 1 : 2;
+        if (agingNanos > 0) {
+            pendingPost.enqueueNanos = System.nanoTime();
+        }
+        if (bandTails[band] != null) {
+            bandTails[band].next = pendingPost;
+        } else {
+            bandHeads[band] = pendingPost;
+        }
+        bandTails[band] = pendingPost;
     }
 
     synchronized PendingPost poll() {
-        PendingPost pendingPost = head;
-        if (head != null) {
-            head = head.next;
-            if (head == null) {
-                tail = null;
+        PendingPost pendingPost;
+        if (bandHeads != null) {
+            pendingPost = pollBands();
+        } else {
+            pendingPost = head;
+            if (head != null) {
+                head = head.next;
+                if (head == null) {
+                    tail = null;
+                }
+            }
+        }
+        if (pendingPost != null) {
+            if (size-- == capacity && backpressurePolicy == BackpressurePolicy.BLOCK) {
+                // Wake up producers waiting for capacity
+                notifyAll();
             }
         }
         return pendingPost;
     }
 
+    /** Removes all pending posts, e.g. if nobody will deliver them. @return the chain of removed posts, or null. */
+    synchronized PendingPost pollAll() {
+        PendingPost first = null;
+        PendingPost last = null;
+        PendingPost pendingPost;
+        while ((pendingPost = poll()) != null) {
+            pendingPost.next = null;
+            if (last != null) {
+                last.next = pendingPost;
+            } else {
+                first = pendingPost;
+            }
+            last = pendingPost;
+        }
+        return first;
+    }
+
+    // Must be called in synchronized block
+    private PendingPost pollBands() {
+        int band = 0;
+        while (band < BAND_COUNT && bandHeads[band] == null) {
+            band++;
+        }
+        if (band == BAND_COUNT) {
+            return null;
+        }
+        if (agingNanos > 0) {
+            long now = System.nanoTime();
+            for (int lowerBand = BAND_COUNT - 1; lowerBand > band; lowerBand--) {
+                PendingPost candidate = bandHeads[lowerBand];
+                if (candidate != null && now - candidate.enqueueNanos >= agingNanos) {
+                    band = lowerBand;
+                    break;
+                }
+            }
+        }
+        return pollBand(band);
+    }
+
+    // Must be called in synchronized block
+    private PendingPost pollLowestBand() {
+        int band = BAND_COUNT - 1;
+        while (bandHeads[band] == null) {
+            band--;
+        }
+        size--;
+        return pollBand(band);
+    }
+
+    // Must be called in synchronized block
+    private PendingPost pollBand(int band) {
+        PendingPost pendingPost = bandHeads[band];
+        bandHeads[band] = pendingPost.next;
+        if (pendingPost.next == null) {
+            bandTails[band] = null;
+        }
+        return pendingPost;
+    }
+
+    /** Whether this queue neither is bounded nor prioritized, so the order of pending posts is all it keeps. */
+    boolean isPlain() {
+        return capacity == 0 && bandHeads == null;
+    }
+
+    /** Whether producers may wait for capacity; consumers must then tell their threads apart. */
+    boolean isBlocking() {
+        return capacity > 0 && backpressurePolicy == BackpressurePolicy.BLOCK;
+    }
+
     synchronized PendingPost poll(int maxMillisToWait) throws InterruptedException {
-        if (head == null) {
+        if (size == 0) {
             wait(maxMillisToWait);
         }
         return poll();
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Base class for events obtained from an {@link EventPool} and returned to it once all deliveries finished. Posting a
+ * pooled event hands the reference of the poster over to EventBus; do not touch the event after posting it.
+ * <p/>
+ * EventBus keeps a reference for each delivery queued for the main thread, background or async posters and releases
+ * it after the subscriber returned. Subscribers keeping the event beyond their invocation must call {@link #retain()}
+ * and {@link #release()} later. Events kept by EventBus itself, e.g. sticky events, dead letters or events held back
+ * by rate limits and batches, are {@link #detach() detached}. Events not obtained from a pool or detached are not
+ * reference counted: {@link #retain()} and {@link #release()} do nothing, so they may be posted any number of times.
+ */
+public abstract class PooledEvent {
+    private static final AtomicIntegerFieldUpdater<PooledEvent> REF_COUNT_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PooledEvent.class, "refCount");
+
+    private volatile int refCount;
+    /** Null if not obtained from a pool or detached. */
+    volatile EventPool<?> pool;
+    /** Set by pools detecting leaks. */
+    EventPool.LeakReference leakReference;
+
+    /** Adds a reference; the event is not recycled before a matching call to {@link #release()}. */
+    public final void retain() {
+        if (pool == null) {
+            return;
+        }
+        if (REF_COUNT_UPDATER.getAndIncrement(this) <= 0) {
+            throw new EventBusException("Event was already recycled: " + getClass());
+        }
+    }
+
+    /** Removes a reference; the last one returns the event to its pool. */
+    public final void release() {
+        if (pool == null) {
+            return;
+        }
+        int count = REF_COUNT_UPDATER.decrementAndGet(this);
+        if (count == 0) {
+            EventPool<?> eventPool = pool;
+            if (eventPool != null) {
+                eventPool.recycle(this);
+            }
+        } else if (count < 0) {
+            throw new EventBusException("Event was released more often than retained: " + getClass());
+        }
+    }
+
+    /**
+     * Takes the event out of the pooled lifecycle: it will not be returned to its pool and is garbage collected like
+     * any other event. Must be called while holding a reference.
+     */
+    public final void detach() {
+        EventPool<?> eventPool = pool;
+        if (eventPool != null) {
+            pool = null;
+            eventPool.untrack(this);
+        }
+    }
+
+    public final int getRefCount() {
+        return refCount;
+    }
+
+    /** Clears the event's state before it is returned to its pool. */
+    protected abstract void reset();
+
+    void initRefCount() {
+        REF_COUNT_UPDATER.set(this, 1);
+    }
+
+    /** Detaches the given event if it is a pooled event. */
+    static void detach(Object event) {
+        if (event instanceof PooledEvent) {
+            ((PooledEvent) event).detach();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the completion of an event posted with {@link EventBus#postAndTrack(Object)}. The future is done once all
+ * subscribers have finished handling the event, including deliveries in the main thread, background and async
+ * threads. Its result are the {@link SubscriberExceptionEvent}s of failed subscribers (empty if none failed).
+ * <p/>
+ * Deliveries held back by a {@link Subscribe#rateLimit()} or a {@link Subscribe#batchSize()} are tracked until the
+ * held back event or the batch containing it was delivered; events dropped by a rate limit count as finished. Tracking
+ * can't be canceled.
+ */
+public final class PostFuture implements Future<List<SubscriberExceptionEvent>> {
+    /** Pending deliveries plus one hold of the posting thread while it dispatches the event. */
+    private final AtomicInteger pendingCount = new AtomicInteger(1);
+
+    private List<SubscriberExceptionEvent> exceptionEvents;
+    private List<EventBus.PostCallback> callbacks;
+    private boolean done;
+
+    PostFuture() {
+    }
+
+    /** Called before a delivery is queued. */
+    void retain() {
+        pendingCount.incrementAndGet();
+    }
+
+    /** Called after a delivery has finished (or the posting thread finished dispatching). */
+    void release() {
+        if (pendingCount.decrementAndGet() == 0) {
+            complete();
+        }
+    }
+
+    synchronized void addExceptionEvent(SubscriberExceptionEvent exceptionEvent) {
+        if (exceptionEvents == null) {
+            exceptionEvents = new ArrayList<>(2);
+        }
+        exceptionEvents.add(exceptionEvent);
+    }
+
+    private void complete() {
+        List<EventBus.PostCallback> callbacksToNotify;
+        List<SubscriberExceptionEvent> result;
+        synchronized (this) {
+            done = true;
+            result = getResult();
+            callbacksToNotify = callbacks;
+            callbacks = null;
+            notifyAll();
+        }
+        if (callbacksToNotify != null) {
+            for (EventBus.PostCallback callback : callbacksToNotify) {
+                callback.onPostCompleted(result);
+            }
+        }
+    }
+
+    // Must be called in synchronized block
+    private List<SubscriberExceptionEvent> getResult() {
+        if (exceptionEvents == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(exceptionEvents);
+    }
+
+    /**
+     * Calls the given callback once all subscribers have finished, which may be immediately in the calling thread.
+     * Otherwise the callback is called in the thread that finished the last delivery.
+     */
+    public void addCallback(EventBus.PostCallback callback) {
+        List<SubscriberExceptionEvent> result;
+        synchronized (this) {
+            if (!done) {
+                if (callbacks == null) {
+                    callbacks = new ArrayList<>(1);
+                }
+                callbacks.add(callback);
+                return;
+            }
+            result = getResult();
+        }
+        callback.onPostCompleted(result);
+    }
+
+    /** Tracking can't be canceled, thus always returns false. */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized List<SubscriberExceptionEvent> get() throws InterruptedException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized List<SubscriberExceptionEvent> get(long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        long remainingMillis = unit.toMillis(timeout);
+        long deadline = System.currentTimeMillis() + remainingMillis;
+        while (!done) {
+            if (remainingMillis <= 0) {
+                throw new TimeoutException("Subscribers did not finish within " + timeout + " " + unit);
+            }
+            wait(remainingMillis);
+            remainingMillis = deadline - System.currentTimeMillis();
+        }
+        return getResult();
+    }
+}
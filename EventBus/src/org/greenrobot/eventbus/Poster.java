@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * Posts events, i.e. queues deliveries to subscriptions for a thread other than the posting thread.
+ */
+interface Poster {
+
+    /**
+     * Enqueue an event to be posted for a particular subscription.
+     *
+     * @param tracker tracker of the event's delivery, released after the subscriber was invoked; may be null
+     */
+    void enqueue(Subscription subscription, Object event, PostFuture tracker);
+
+    /**
+     * Like {@link #enqueue(Subscription, Object, PostFuture)}, but rejects the delivery if the poster's queue is full
+     * instead of applying its {@link BackpressurePolicy}.
+     *
+     * @return false if rejected
+     */
+    boolean tryEnqueue(Subscription subscription, Object event, PostFuture tracker);
+
+    /** Enqueues all pending posts of the batch, handing over the batch' pending posts. */
+    void enqueueAll(PendingPostBatch batch);
+}
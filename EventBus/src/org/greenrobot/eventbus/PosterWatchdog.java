@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Detects subscribers stalling the serial posters (main thread, background); enabled by
+ * {@link EventBusBuilder#watchdog(long)}. Each poster publishes its in-flight subscription and the start time of the
+ * delivery in a {@link Slot}; a task of the shared timer checks the slots periodically and logs deliveries exceeding
+ * the budget, including a stack sample of the delivering thread. It also logs main thread backlogs: deliveries still
+ * being queued after the budget, although the main thread poster already gave up the thread for
+ * maxMillisInsideHandleMessage.
+ * <p/>
+ * Each stalled delivery and each backlog is reported once. Slots are only weakly referenced: once the posters of an
+ * unused EventBus were garbage collected, the task is cancelled.
+ */
+final class PosterWatchdog implements Runnable {
+    private final long budgetNanos;
+    private final Logger logger;
+    private final CopyOnWriteArrayList<WeakReference<Slot>> slots = new CopyOnWriteArrayList<>();
+    private ScheduledFuture<?> checks;
+
+    PosterWatchdog(long budgetMillis, Logger logger) {
+        budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.logger = logger;
+    }
+
+    /** Creates the slot of a poster; the checks start with the first slot. */
+    synchronized Slot createSlot(String posterName) {
+        Slot slot = new Slot(posterName);
+        slots.add(new WeakReference<>(slot));
+        if (checks == null) {
+            long periodNanos = Math.max(budgetNanos / 2, TimeUnit.MILLISECONDS.toNanos(10));
+            checks = SharedTimer.get().scheduleWithFixedDelay(this, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        }
+        return slot;
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        for (WeakReference<Slot> slotReference : slots) {
+            Slot slot = slotReference.get();
+            if (slot != null) {
+                checkDelivery(slot, now);
+                checkBacklog(slot, now);
+            } else {
+                slots.remove(slotReference);
+            }
+        }
+        if (slots.isEmpty()) {
+            cancelChecks();
+        }
+    }
+
+    private synchronized void cancelChecks() {
+        if (slots.isEmpty() && checks != null) {
+            checks.cancel(false);
+            checks = null;
+        }
+    }
+
+    private void checkDelivery(Slot slot, long now) {
+        long startNanos = slot.startNanos;
+        Subscription subscription = slot.subscription;
+        Thread thread = slot.thread;
+        if (startNanos == 0 || startNanos == slot.reportedStartNanos || now - startNanos < budgetNanos
+                || subscription == null || thread == null || startNanos != slot.startNanos) {
+            // Idle, already reported, within budget, or the delivery changed while reading
+            return;
+        }
+        slot.reportedStartNanos = startNanos;
+        Throwable stackSample = new Throwable("Stack sample of " + thread.getName());
+        stackSample.setStackTrace(thread.getStackTrace());
+        logger.log(Level.WARNING, "Subscriber " + subscription.subscriber.getClass().getName() + "."
+                + subscription.subscriberMethod.method.getName() + " blocks the " + slot.posterName + " poster for "
+                + TimeUnit.NANOSECONDS.toMillis(now - startNanos) + " ms (budget: "
+                + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms)", stackSample);
+    }
+
+    private void checkBacklog(Slot slot, long now) {
+        long backlogStartNanos = slot.backlogStartNanos;
+        if (backlogStartNanos == 0 || backlogStartNanos == slot.reportedBacklogStartNanos
+                || now - backlogStartNanos < budgetNanos) {
+            return;
+        }
+        slot.reportedBacklogStartNanos = backlogStartNanos;
+        logger.log(Level.WARNING, "Backlog of the " + slot.posterName + " poster: " + slot.backlogDeliveries
+                + " deliveries in " + TimeUnit.NANOSECONDS.toMillis(now - backlogStartNanos)
+                + " ms did not drain the queue (budget: " + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms)");
+    }
+
+    /** The in-flight delivery of a single poster thread. */
+    static final class Slot {
+        final String posterName;
+        volatile Thread thread;
+        volatile Subscription subscription;
+        /** Start of the in-flight delivery; 0 if idle. */
+        volatile long startNanos;
+        /** Start of the current backlog; 0 if none. */
+        volatile long backlogStartNanos;
+        /** Deliveries since the backlog started; approximate. */
+        int backlogDeliveries;
+
+        // Accessed by the watchdog only
+        long reportedStartNanos;
+        long reportedBacklogStartNanos;
+
+        Slot(String posterName) {
+            this.posterName = posterName;
+        }
+
+        void begin(Subscription subscription) {
+            thread = Thread.currentThread();
+            this.subscription = subscription;
+            startNanos = System.nanoTime();
+            if (backlogStartNanos != 0) {
+                backlogDeliveries++;
+            }
+        }
+
+        /** Also drops the references to the subscription and the thread, which must not be kept while idle. */
+        void end() {
+            startNanos = 0;
+            subscription = null;
+            thread = null;
+        }
+
+        /** Called by a poster giving up its thread while deliveries are still queued. */
+        void markBacklog() {
+            if (backlogStartNanos == 0) {
+                backlogDeliveries = 0;
+                backlogStartNanos = System.nanoTime();
+            }
+        }
+
+        /** Called by a poster whose queue was drained. */
+        void clearBacklog() {
+            if (backlogStartNanos != 0) {
+                backlogStartNanos = 0;
+            }
+        }
+    }
+}
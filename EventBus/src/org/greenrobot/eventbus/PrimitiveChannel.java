@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A named channel delivering primitive values to its subscribers without boxing them. Values are dispatched directly
+ * to the channel's subscribers; they do not go through the event bus' event classes, sticky events or journal.
+ * Subscribers are either handler interfaces, e.g. {@link LongEventHandler}, or objects having methods annotated with
+ * {@link Subscribe} and a single parameter of the channel's primitive type. The latter are invoked using reflection,
+ * which boxes the value; use handler interfaces for allocation free delivery.
+ * <p/>
+ * Values for subscribers not called in the posting thread are queued per subscription in a primitive array; no
+ * {@link PendingPost} is created per value. {@link ThreadMode#BACKGROUND} subscribers of all channels of a bus are
+ * called sequentially like background event subscribers, but in their own sequence: values are not ordered relative
+ * to events. {@link ThreadMode#ASYNC} subscribers are called in threads of the bus' executor; each subscription gets
+ * its values one at a time and in order, while different subscriptions are called concurrently.
+ *
+ * @see EventBus#intChannel(String)
+ * @see EventBus#longChannel(String)
+ * @see EventBus#doubleChannel(String)
+ */
+public abstract class PrimitiveChannel {
+    final EventBus eventBus;
+    private final String name;
+    private final CopyOnWriteArrayList<PrimitiveSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    PrimitiveChannel(EventBus eventBus, String name) {
+        this.eventBus = eventBus;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Registers all public methods of the given subscriber annotated with {@link Subscribe} and having a single
+     * parameter of the channel's primitive type. Thread mode and priority are taken from the annotation.
+     */
+    public synchronized void register(Object subscriber) {
+        checkNotRegistered(subscriber);
+        Class<?> primitiveType = getPrimitiveType();
+        boolean found = false;
+        for (Method method : subscriber.getClass().getMethods()) {
+            Subscribe subscribeAnnotation = method.getAnnotation(Subscribe.class);
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if (subscribeAnnotation != null && parameterTypes.length == 1 && parameterTypes[0] == primitiveType) {
+                add(new ReflectiveSubscription(this, subscriber, method, subscribeAnnotation));
+                found = true;
+            }
+        }
+        if (!found) {
+            throw new EventBusException("Subscriber " + subscriber.getClass()
+                    + " has no public methods with the @Subscribe annotation taking a " + primitiveType + " parameter");
+        }
+    }
+
+    /** Unregisters the given handler or subscriber from this channel. */
+    public synchronized void unregister(Object subscriber) {
+        for (PrimitiveSubscription subscription : subscriptions) {
+            if (subscription.subscriber == subscriber) {
+                subscription.active = false;
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /** The primitive class of the values delivered by this channel, e.g. long.class. */
+    abstract Class<?> getPrimitiveType();
+
+    /** Boxes a value for reflection, logging and {@link SubscriberExceptionEvent}s. */
+    abstract Object box(long bits);
+
+    /** Calls the channel type's handler interface with the decoded value. */
+    abstract void invokeHandler(Object handler, long bits);
+
+    final synchronized void registerHandler(Object handler, ThreadMode threadMode, int priority) {
+        checkNotRegistered(handler);
+        add(new HandlerSubscription(this, handler, threadMode, priority));
+    }
+
+    // Must be called in synchronized block
+    void checkNotRegistered(Object subscriber) {
+        for (PrimitiveSubscription subscription : subscriptions) {
+            if (subscription.subscriber == subscriber) {
+                throw new EventBusException("Subscriber " + subscriber.getClass() + " already registered to channel "
+                        + name);
+            }
+        }
+    }
+
+    // Must be called in synchronized block
+    void add(PrimitiveSubscription newSubscription) {
+        int size = subscriptions.size();
+        for (int i = 0; i <= size; i++) {
+            if (i == size || newSubscription.priority > subscriptions.get(i).priority) {
+                subscriptions.add(i, newSubscription);
+                break;
+            }
+        }
+    }
+
+    /** Dispatches a value encoded as long; see the subclasses for the encoding. */
+    final void postBits(long bits) {
+        // 0: not determined yet, 1: main thread, -1: other thread
+        int mainThreadState = 0;
+        for (PrimitiveSubscription subscription : subscriptions) {
+            ThreadMode threadMode = subscription.threadMode;
+            if (threadMode == ThreadMode.POSTING) {
+                invokeSubscriber(subscription, bits);
+                continue;
+            }
+            if (threadMode != ThreadMode.ASYNC && mainThreadState == 0) {
+                mainThreadState = eventBus.isMainThread() ? 1 : -1;
+            }
+            if ((threadMode == ThreadMode.MAIN && mainThreadState == 1)
+                    || (threadMode == ThreadMode.BACKGROUND && mainThreadState == -1)) {
+                invokeSubscriber(subscription, bits);
+            } else {
+                subscription.enqueue(bits);
+            }
+        }
+    }
+
+    void invokeSubscriber(PrimitiveSubscription subscription, long bits) {
+        Throwable cause;
+        try {
+            subscription.invoke(bits);
+            return;
+        } catch (InvocationTargetException e) {
+            cause = e.getCause();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unexpected exception", e);
+        } catch (RuntimeException e) {
+            cause = e;
+        }
+        eventBus.handleChannelSubscriberException(this, subscription.subscriber, box(bits), cause);
+    }
+
+    /** Runs the given subscription's queue drain in the thread required by its thread mode. */
+    void schedule(PrimitiveSubscription subscription) {
+        if (subscription.threadMode == ThreadMode.MAIN) {
+            if (!eventBus.getMainThreadSupport().post(subscription)) {
+                throw new EventBusException("Could not post to main thread");
+            }
+        } else if (subscription.threadMode == ThreadMode.BACKGROUND) {
+            eventBus.getChannelBackgroundExecutor().execute(subscription);
+        } else {
+            eventBus.getExecutorService().execute(subscription);
+        }
+    }
+
+    /** Runs tasks one at a time in threads of the given executor, in the order they were submitted. */
+    static final class SerialExecutor implements Runnable {
+        private final Executor executor;
+        // Guarded by this
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        void execute(Runnable task) {
+            synchronized (this) {
+                tasks.add(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    running = false;
+                    tasks.remove(task);
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                boolean completed = false;
+                try {
+                    task.run();
+                    completed = true;
+                } finally {
+                    if (!completed) {
+                        // The exception ends this thread's run; the remaining tasks continue in a new one
+                        synchronized (this) {
+                            running = !tasks.isEmpty();
+                        }
+                        if (running) {
+                            executor.execute(this);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** A subscriber of a channel with its queue of values to be delivered in another thread. */
+    abstract static class PrimitiveSubscription implements Runnable {
+        /**
+         * Time the main thread or the sequential background executor may spend delivering values of a subscription
+         * before giving other messages or subscriptions a chance.
+         */
+        private static final long MAX_NANOS_PER_RUN = TimeUnit.MILLISECONDS.toNanos(10);
+
+        final PrimitiveChannel channel;
+        final Object subscriber;
+        final ThreadMode threadMode;
+        final int priority;
+        volatile boolean active = true;
+
+        // Ring buffer guarded by this; capacity is a power of two
+        private long[] queue = new long[16];
+        private int head;
+        private int size;
+        private boolean scheduled;
+
+        PrimitiveSubscription(PrimitiveChannel channel, Object subscriber, ThreadMode threadMode, int priority) {
+            this.channel = channel;
+            this.subscriber = subscriber;
+            this.threadMode = threadMode;
+            this.priority = priority;
+        }
+
+        abstract void invoke(long bits) throws InvocationTargetException, IllegalAccessException;
+
+        void enqueue(long bits) {
+            synchronized (this) {
+                if (size == queue.length) {
+                    long[] newQueue = new long[queue.length << 1];
+                    int firstPart = queue.length - head;
+                    System.arraycopy(queue, head, newQueue, 0, firstPart);
+                    System.arraycopy(queue, 0, newQueue, firstPart, head);
+                    queue = newQueue;
+                    head = 0;
+                }
+                queue[(head + size) & (queue.length - 1)] = bits;
+                size++;
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            try {
+                channel.schedule(this);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean sequential = threadMode != ThreadMode.ASYNC;
+            long started = sequential ? System.nanoTime() : 0;
+            boolean completed = false;
+            try {
+                while (true) {
+                    long bits;
+                    synchronized (this) {
+                        if (size == 0) {
+                            scheduled = false;
+                            completed = true;
+                            return;
+                        }
+                        bits = queue[head];
+                        head = (head + 1) & (queue.length - 1);
+                        size--;
+                    }
+                    if (active) {
+                        channel.invokeSubscriber(this, bits);
+                    }
+                    if (sequential && System.nanoTime() - started >= MAX_NANOS_PER_RUN) {
+                        // Stays scheduled; continue in a new run
+                        completed = true;
+                        channel.schedule(this);
+                        return;
+                    }
+                }
+            } finally {
+                if (!completed) {
+                    // A subscriber exception was thrown (see EventBusBuilder#throwSubscriberException)
+                    boolean remaining;
+                    synchronized (this) {
+                        remaining = size > 0;
+                        scheduled = remaining;
+                    }
+                    if (remaining) {
+                        channel.schedule(this);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Calls a handler interface of the channel's type, e.g. {@link IntEventHandler}. */
+    private static final class HandlerSubscription extends PrimitiveSubscription {
+        HandlerSubscription(PrimitiveChannel channel, Object handler, ThreadMode threadMode, int priority) {
+            super(channel, handler, threadMode, priority);
+        }
+
+        @Override
+        void invoke(long bits) {
+            channel.invokeHandler(subscriber, bits);
+        }
+    }
+
+    /** Invokes a method annotated with {@link Subscribe} using reflection, boxing the value. */
+    private static final class ReflectiveSubscription extends PrimitiveSubscription {
+        private final Method method;
+
+        ReflectiveSubscription(PrimitiveChannel channel, Object subscriber, Method method, Subscribe subscribe) {
+            super(channel, subscriber, subscribe.threadMode(), subscribe.priority());
+            this.method = method;
+        }
+
+        @Override
+        void invoke(long bits) throws InvocationTargetException, IllegalAccessException {
+            method.invoke(subscriber, channel.box(bits));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * Time based rate control of a subscriber method, configured by {@link Subscribe#rateLimit()} together with the time
+ * window {@link Subscribe#rateLimitMillis()}. Rate control is applied before the event is handed over to the
+ * subscriber's {@link ThreadMode}, so dropped events never cause a thread switch.
+ * <p/>
+ * Events held back for a later delivery are queued by a single timer thread shared by all EventBus instances to the
+ * poster of the subscriber's thread mode. {@link ThreadMode#POSTING} subscribers get them in the background thread.
+ *
+ * @see Subscribe#rateLimit()
+ */
+public enum RateLimit {
+    /** Every event is delivered. This is the default. */
+    NONE,
+
+    /**
+     * Delivers only the latest event once no further events were posted for the time window, e.g. for search as you
+     * type.
+     */
+    DEBOUNCE,
+
+    /** Delivers the first event and drops all following events posted within the time window. */
+    THROTTLE_FIRST,
+
+    /**
+     * Delivers the first event, and at most one event per time window after that: the latest one posted within the
+     * window is delivered at the end of the window, e.g. for sensor streams.
+     */
+    THROTTLE_LATEST
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the {@link RateLimit} of a single subscription. At most one timer task is scheduled at any time, no matter
+ * how many events are posted.
+ */
+final class RateLimiter implements Runnable {
+    private final EventBus eventBus;
+    private final Subscription subscription;
+    private final RateLimit rateLimit;
+    private final long windowNanos;
+
+    /** The event held back for delivery by the timer. */
+    private Object pendingEvent;
+    /** Tracker of the pending event; holds a reference until the event was delivered or replaced. */
+    private PostFuture pendingTracker;
+    private boolean scheduled;
+    private boolean delivered;
+    /** Debounce: time of the latest event; throttle: time of the latest delivery. */
+    private long lastNanos;
+
+    RateLimiter(EventBus eventBus, Subscription subscription) {
+        this.eventBus = eventBus;
+        this.subscription = subscription;
+        rateLimit = subscription.subscriberMethod.rateLimit;
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(subscription.subscriberMethod.rateLimitMillis);
+    }
+
+    /**
+     * @return true if the event is to be delivered right away; otherwise it was dropped or is held back for a later
+     * delivery by the timer.
+     */
+    boolean offer(Object event, PostFuture tracker) {
+        PostFuture replacedTracker;
+        synchronized (this) {
+            long now = System.nanoTime();
+            switch (rateLimit) {
+                case DEBOUNCE:
+                    replacedTracker = hold(event, tracker);
+                    lastNanos = now;
+                    schedule(windowNanos);
+                    break;
+                case THROTTLE_FIRST:
+                    if (isWindowOpen(now)) {
+                        markDelivered(now);
+                        return true;
+                    }
+                    return false;
+                case THROTTLE_LATEST:
+                    if (!scheduled && isWindowOpen(now)) {
+                        markDelivered(now);
+                        return true;
+                    }
+                    replacedTracker = hold(event, tracker);
+                    schedule(lastNanos + windowNanos - now);
+                    break;
+                default:
+                    return true;
+            }
+        }
+        if (replacedTracker != null) {
+            // The replaced event is dropped
+            replacedTracker.release();
+        }
+        return false;
+    }
+
+    /** @return the tracker of the replaced pending event, if any. */
+    private PostFuture hold(Object event, PostFuture tracker) {
+        PostFuture replacedTracker = pendingTracker;
+        if (tracker != null) {
+            tracker.retain();
+        }
+        pendingEvent = event;
+        pendingTracker = tracker;
+        return replacedTracker;
+    }
+
+    private boolean isWindowOpen(long now) {
+        return !delivered || now - lastNanos >= windowNanos;
+    }
+
+    private void markDelivered(long now) {
+        delivered = true;
+        lastNanos = now;
+    }
+
+    private void schedule(long delayNanos) {
+        if (!scheduled) {
+            scheduled = true;
+            SharedTimer.get().schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        Object event;
+        PostFuture tracker;
+        synchronized (this) {
+            scheduled = false;
+            long now = System.nanoTime();
+            if (rateLimit == RateLimit.DEBOUNCE) {
+                long remaining = lastNanos + windowNanos - now;
+                if (remaining > 0) {
+                    // Events arrived after this task was scheduled; keep waiting for silence
+                    schedule(remaining);
+                    return;
+                }
+            } else {
+                markDelivered(now);
+            }
+            event = pendingEvent;
+            tracker = pendingTracker;
+            pendingEvent = null;
+            pendingTracker = null;
+        }
+        if (event != null) {
+            eventBus.postDelayedToSubscription(subscription, event, tracker);
+        }
+    }
+}
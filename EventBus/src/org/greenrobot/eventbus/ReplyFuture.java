@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending result of {@link EventBus#request(Object, Class, long)} (the first reply) or
+ * {@link EventBus#gather(Object, Class, long)} (all replies). Subscribers reply to the request event using
+ * {@link EventBus#reply(Object, Object)}; replies are routed directly to this future and are not posted.
+ *
+ * @param <T> the response type for requests, or a List of the response type for gather.
+ */
+public final class ReplyFuture<T> implements Future<T> {
+    private final EventBus eventBus;
+    private final Object request;
+    private final Class<?> responseType;
+    private final boolean gather;
+
+    private List<Object> responses;
+    private Object result;
+    private Throwable failure;
+    private boolean done;
+    private boolean cancelled;
+    private ScheduledFuture<?> timeoutTask;
+
+    ReplyFuture(EventBus eventBus, Object request, Class<?> responseType, boolean gather) {
+        this.eventBus = eventBus;
+        this.request = request;
+        this.responseType = responseType;
+        this.gather = gather;
+    }
+
+    Object getRequest() {
+        return request;
+    }
+
+    synchronized void scheduleTimeout(long timeoutMillis) {
+        if (!done) {
+            timeoutTask = SharedTimer.get().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    onTimeout();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** @return false if the future was already done and the response was ignored. */
+    boolean offer(Object response) {
+        if (!responseType.isInstance(response)) {
+            throw new EventBusException("Reply " + response.getClass() + " to request " + request.getClass()
+                    + " is not of the expected type " + responseType);
+        }
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            if (gather) {
+                if (responses == null) {
+                    responses = new ArrayList<>();
+                }
+                responses.add(response);
+                return true;
+            }
+            result = response;
+            finish();
+        }
+        return true;
+    }
+
+    /** Gather completes once all subscribers have handled the request. */
+    synchronized void onAllSubscribersFinished() {
+        if (gather && !done) {
+            result = getResponses();
+            finish();
+        }
+    }
+
+    private synchronized void onTimeout() {
+        if (!done) {
+            if (gather) {
+                result = getResponses();
+            } else {
+                failure = new TimeoutException("No reply to " + request.getClass() + " within timeout");
+            }
+            finish();
+        }
+    }
+
+    // Must be called in synchronized block
+    private List<Object> getResponses() {
+        return responses != null ? Collections.unmodifiableList(responses) : Collections.emptyList();
+    }
+
+    // Must be called in synchronized block
+    private void finish() {
+        done = true;
+        if (timeoutTask != null) {
+            timeoutTask.cancel(false);
+            timeoutTask = null;
+        }
+        eventBus.removePendingRequest(this);
+        notifyAll();
+    }
+
+    /** Stops waiting for replies; later replies are ignored. */
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+        if (done) {
+            return false;
+        }
+        cancelled = true;
+        failure = new CancellationException();
+        finish();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long remainingMillis = unit.toMillis(timeout);
+        long deadline = System.currentTimeMillis() + remainingMillis;
+        while (!done) {
+            if (remainingMillis <= 0) {
+                throw new TimeoutException();
+            }
+            wait(remainingMillis);
+            remainingMillis = deadline - System.currentTimeMillis();
+        }
+        return getResult();
+    }
+
+    // Must be called in synchronized block
+    @SuppressWarnings("unchecked")
+    private T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw (CancellationException) failure;
+        } else if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return (T) result;
+    }
+}
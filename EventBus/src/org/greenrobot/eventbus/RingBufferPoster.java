@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+/**
+ * Background poster based on a pre-allocated ring buffer instead of a linked queue and monitor hand-off, see
+ * {@link EventBusBuilder#backgroundRingBuffer(int, RingBufferWaitStrategy)}.
+ * <p/>
+ * Posting threads claim a sequence, write the delivery to the slot of the sequence and publish the slot by setting its
+ * availability flag to the round of the sequence. A single consumer thread processes all consecutively published
+ * slots as a batch and then advances the consumed sequence, which frees the slots for posting threads. Posting threads
+ * wait (spinning and parking) while the ring buffer is full.
+ * <p/>
+ * Unlike {@link BackgroundPoster}, the consumer is a dedicated thread, which is started on first use and is not taken
+ * from the EventBus' executor. The ring buffer is bounded by its capacity: posting threads always wait while it is
+ * full, no matter the {@link BackpressurePolicy}; {@link EventBus#tryPost(Object)} rejects the delivery. Deliveries
+ * posted by the consumer thread itself, which would wait for itself, go to an unbounded overflow queue processed by
+ * the consumer after the current batch. If a delivery throws an Error, a new consumer thread takes over with the next
+ * delivery.
+ */
+final class RingBufferPoster implements Poster, Runnable {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = 100000;
+
+    private final EventBus eventBus;
+    private final RingBufferWaitStrategy waitStrategy;
+    /** Null unless the watchdog is enabled. */
+    private final PosterWatchdog.Slot watchdogSlot;
+    private final int mask;
+    private final int indexShift;
+
+    private final Subscription[] subscriptions;
+    private final Object[] events;
+    private final PostFuture[] trackers;
+    /** Round (sequence >>> indexShift) of the sequence published in a slot; -1 if none yet. */
+    private final AtomicIntegerArray published;
+
+    private final AtomicLong claimedSequence = new AtomicLong(-1);
+    private final AtomicLong consumedSequence = new AtomicLong(-1);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition eventsAvailable = lock.newCondition();
+    private volatile boolean consumerWaiting;
+
+    private volatile boolean started;
+    private volatile Thread consumerThread;
+    /** The sequence a new consumer thread starts with; written before starting it. */
+    private long startSequence;
+    /** Deliveries posted by the consumer thread; only accessed by the consumer thread. */
+    private final ArrayDeque<PendingPost> overflow = new ArrayDeque<>();
+
+    RingBufferPoster(EventBus eventBus, int capacity, RingBufferWaitStrategy waitStrategy,
+            PosterWatchdog.Slot watchdogSlot) {
+        if (capacity <= 0) {
+            throw new EventBusException("Capacity must be positive: " + capacity);
+        }
+        int powerOfTwo = Integer.highestOneBit(capacity);
+        if (powerOfTwo < capacity) {
+            powerOfTwo <<= 1;
+        }
+        this.eventBus = eventBus;
+        this.waitStrategy = waitStrategy;
+        this.watchdogSlot = watchdogSlot;
+        mask = powerOfTwo - 1;
+        indexShift = Integer.numberOfTrailingZeros(powerOfTwo);
+        subscriptions = new Subscription[powerOfTwo];
+        events = new Object[powerOfTwo];
+        trackers = new PostFuture[powerOfTwo];
+        published = new AtomicIntegerArray(powerOfTwo);
+        for (int i = 0; i < powerOfTwo; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    @Override
+    public void enqueue(Subscription subscription, Object event, PostFuture tracker) {
+        if (Thread.currentThread() == consumerThread) {
+            overflow.add(PendingPost.obtainPendingPost(subscription, event, tracker));
+            return;
+        }
+        publish(subscription, event, tracker);
+        signalConsumer();
+    }
+
+    /** Publishes the delivery only if the ring buffer has a free slot. */
+    @Override
+    public boolean tryEnqueue(Subscription subscription, Object event, PostFuture tracker) {
+        if (Thread.currentThread() == consumerThread) {
+            overflow.add(PendingPost.obtainPendingPost(subscription, event, tracker));
+            return true;
+        }
+        if (!started) {
+            start();
+        }
+        long sequence;
+        do {
+            long claimed = claimedSequence.get();
+            sequence = claimed + 1;
+            if (sequence - subscriptions.length > consumedSequence.get()) {
+                return false;
+            }
+            if (claimedSequence.compareAndSet(claimed, sequence)) {
+                break;
+            }
+        } while (true);
+        publishAt(sequence, subscription, event, tracker);
+        signalConsumer();
+        return true;
+    }
+
+    @Override
+    public void enqueueAll(PendingPostBatch batch) {
+        PendingPost pendingPost = batch.head;
+        if (Thread.currentThread() == consumerThread) {
+            while (pendingPost != null) {
+                PendingPost next = pendingPost.next;
+                pendingPost.next = null;
+                overflow.add(pendingPost);
+                pendingPost = next;
+            }
+            return;
+        }
+        while (pendingPost != null) {
+            PendingPost next = pendingPost.next;
+            publish(pendingPost.subscription, pendingPost.event, pendingPost.tracker);
+            PendingPost.releasePendingPost(pendingPost);
+            pendingPost = next;
+        }
+        signalConsumer();
+    }
+
+    private void publish(Subscription subscription, Object event, PostFuture tracker) {
+        if (!started) {
+            start();
+        }
+        long sequence = claimedSequence.incrementAndGet();
+        long wrapSequence = sequence - subscriptions.length;
+        while (wrapSequence > consumedSequence.get()) {
+            // Ring buffer is full, wait for the consumer to free the slot
+            LockSupport.parkNanos(1);
+        }
+        publishAt(sequence, subscription, event, tracker);
+    }
+
+    private void publishAt(long sequence, Subscription subscription, Object event, PostFuture tracker) {
+        int index = (int) sequence & mask;
+        subscriptions[index] = subscription;
+        events[index] = event;
+        trackers[index] = tracker;
+        if (waitStrategy == RingBufferWaitStrategy.BLOCKING) {
+            // Volatile write: must not be reordered with reading consumerWaiting in signalConsumer()
+            published.set(index, (int) (sequence >>> indexShift));
+        } else {
+            published.lazySet(index, (int) (sequence >>> indexShift));
+        }
+    }
+
+    private synchronized void start() {
+        if (!started) {
+            startConsumer(0);
+            started = true;
+        }
+    }
+
+    private void startConsumer(long sequence) {
+        startSequence = sequence;
+        Thread consumer = new Thread(this, "EventBus ring buffer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    private void signalConsumer() {
+        if (consumerWaiting) {
+            lock.lock();
+            try {
+                eventsAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    @Override
+    public void run() {
+        consumerThread = Thread.currentThread();
+        long nextSequence = startSequence;
+        try {
+            while (true) {
+                processOverflow(nextSequence);
+                waitFor(nextSequence);
+                long lastSequence = nextSequence;
+                while (isPublished(lastSequence + 1) && lastSequence + 1 - nextSequence <= mask) {
+                    lastSequence++;
+                }
+                for (long sequence = nextSequence; sequence <= lastSequence; sequence++) {
+                    int index = (int) sequence & mask;
+                    Subscription subscription = subscriptions[index];
+                    Object event = events[index];
+                    PostFuture tracker = trackers[index];
+                    subscriptions[index] = null;
+                    events[index] = null;
+                    trackers[index] = null;
+                    if (watchdogSlot != null) {
+                        watchdogSlot.begin(subscription);
+                    }
+                    try {
+                        eventBus.invokeQueuedSubscriber(subscription, event, tracker);
+                    } catch (RuntimeException e) {
+                        // Keep the consumer thread alive
+                        eventBus.getLogger().log(Level.SEVERE, "Ring buffer delivery failed", e);
+                    } catch (Error e) {
+                        // Let the error terminate this thread, but not the deliveries
+                        consumedSequence.set(sequence);
+                        startConsumer(sequence + 1);
+                        throw e;
+                    } finally {
+                        if (watchdogSlot != null) {
+                            watchdogSlot.end();
+                        }
+                    }
+                }
+                consumedSequence.lazySet(lastSequence);
+                nextSequence = lastSequence + 1;
+            }
+        } catch (InterruptedException e) {
+            // Posters spin until their slot was consumed: hand over to a new consumer thread
+            eventBus.getLogger().log(Level.WARNING, Thread.currentThread().getName() + " was interrupted, restarting",
+                    e);
+            startConsumer(nextSequence);
+        }
+    }
+
+    /** @param nextSequence the next sequence to consume from the ring buffer, in case a new consumer takes over */
+    private void processOverflow(long nextSequence) {
+        PendingPost pendingPost;
+        while ((pendingPost = overflow.poll()) != null) {
+            if (watchdogSlot != null) {
+                watchdogSlot.begin(pendingPost.subscription);
+            }
+            try {
+                eventBus.invokeSubscriber(pendingPost);
+            } catch (RuntimeException e) {
+                eventBus.getLogger().log(Level.SEVERE, "Ring buffer delivery failed", e);
+            } catch (Error e) {
+                startConsumer(nextSequence);
+                throw e;
+            } finally {
+                if (watchdogSlot != null) {
+                    watchdogSlot.end();
+                }
+            }
+        }
+    }
+
+    private void waitFor(long sequence) throws InterruptedException {
+        int tries = 0;
+        while (!isPublished(sequence)) {
+            switch (waitStrategy) {
+                case BUSY_SPIN:
+                    break;
+                case YIELDING:
+                    if (tries < SPIN_TRIES) {
+                        tries++;
+                    } else {
+                        Thread.yield();
+                    }
+                    break;
+                case SLEEPING:
+                    if (tries < SPIN_TRIES) {
+                        tries++;
+                    } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+                        tries++;
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(SLEEP_NANOS);
+                    }
+                    break;
+                case BLOCKING:
+                    block(sequence);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown wait strategy: " + waitStrategy);
+            }
+        }
+    }
+
+    private void block(long sequence) throws InterruptedException {
+        lock.lock();
+        try {
+            consumerWaiting = true;
+            // Check again after announcing: a poster publishing now sees consumerWaiting and signals
+            while (!isPublished(sequence)) {
+                eventsAvailable.await();
+            }
+        } finally {
+            consumerWaiting = false;
+            lock.unlock();
+        }
+    }
+}
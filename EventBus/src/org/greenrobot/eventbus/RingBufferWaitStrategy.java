@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+/**
+ * How the consumer thread of a ring buffer background poster waits for new events, see
+ * {@link EventBusBuilder#backgroundRingBuffer(int, RingBufferWaitStrategy)}. Strategies lower in this list have
+ * lower latency but use more CPU while idle.
+ */
+public enum RingBufferWaitStrategy {
+    /** Waits on a lock; posters signal it only if the consumer is waiting. Lowest CPU usage. */
+    BLOCKING,
+
+    /** Spins, then yields, then parks for short periods. */
+    SLEEPING,
+
+    /** Spins, then yields the thread. */
+    YIELDING,
+
+    /** Spins constantly; occupies a CPU core. */
+    BUSY_SPIN
+}
@@ -40,5 +40,43 @@ public @interface Subscribe {
      * others with a lower priority. The default priority is 0. Note: the priority does *NOT* affect the order of
      * delivery among subscribers with different {@link ThreadMode}s! */
     int priority() default 0;
+
+    /**
+     * If true, a queued {@link ThreadMode#MAIN} delivery that was not handled yet is replaced by a newer event for this
+     * subscriber method. Thus the main thread only sees the latest value if events are posted faster than they can be
+     * handled (e.g. progress or state updates). Events posted from the main thread are delivered directly as usual.
+     */
+    boolean conflate() default false;
+
+    /**
+     * Time based rate control like debouncing or throttling applied to events before they are delivered in the
+     * subscriber's {@link ThreadMode}. Requires a time window given by {@link #rateLimitMillis()}.
+     */
+    RateLimit rateLimit() default RateLimit.NONE;
+
+    /** The time window in milliseconds used by {@link #rateLimit()}. */
+    long rateLimitMillis() default 0;
+
+    /**
+     * If greater than 0, events are delivered in batches of up to the given size. The subscriber method must take a
+     * single {@link java.util.List} parameter, whose type argument is the event type, e.g.
+     * {@code public void onEvents(List<MyEvent> events)}. Batches are supported for {@link ThreadMode#BACKGROUND} and
+     * {@link ThreadMode#ASYNC}, and also require {@link #batchMillis()}.
+     */
+    int batchSize() default 0;
+
+    /**
+     * The maximum time in milliseconds the first event of a batch waits before the (not yet full) batch is
+     * delivered. See {@link #batchSize()}.
+     */
+    long batchMillis() default 0;
+
+    /**
+     * Name of an executor registered by {@link EventBusBuilder#executor(String, java.util.concurrent.ExecutorService)}
+     * to run this {@link ThreadMode#BACKGROUND} or {@link ThreadMode#ASYNC} subscriber method on. Empty to use the
+     * default executor. Background deliveries to a named executor are always queued, even if posted from a background
+     * thread, and are delivered sequentially like the default background deliveries.
+     */
+    String executor() default "";
 }
 
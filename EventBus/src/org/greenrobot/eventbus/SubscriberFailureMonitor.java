@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Tracks subscriber failures per subscription to aggregate their logging and to suspend subscriptions failing
+ * repeatedly (circuit breaker). See {@link EventBusBuilder#aggregateSubscriberExceptions(long)} and
+ * {@link EventBusBuilder#subscriberCircuitBreaker(int, long)}.
+ */
+final class SubscriberFailureMonitor {
+    private final long summaryIntervalMillis;
+    private final int maxConsecutiveFailures;
+    private final long suspendMillis;
+    private final Logger logger;
+    private final boolean logSuspensions;
+
+    /** @param summaryIntervalMillis 0 unless subscriber exceptions are logged (and aggregated). */
+    SubscriberFailureMonitor(long summaryIntervalMillis, int maxConsecutiveFailures, long suspendMillis,
+            Logger logger) {
+        this.summaryIntervalMillis = summaryIntervalMillis;
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.suspendMillis = suspendMillis;
+        this.logger = logger;
+        logSuspensions = logger.isLoggable(Level.WARNING);
+    }
+
+    boolean isCircuitBreakerEnabled() {
+        return maxConsecutiveFailures > 0;
+    }
+
+    /** True while the subscription is suspended by the circuit breaker; its deliveries are skipped. */
+    boolean isSuspended(Subscription subscription) {
+        long suspendedUntil = subscription.suspendedUntilMillis;
+        return suspendedUntil != 0 && System.currentTimeMillis() < suspendedUntil;
+    }
+
+    void onSuccess(Subscription subscription) {
+        if (subscription.consecutiveFailures != 0) {
+            synchronized (subscription) {
+                subscription.consecutiveFailures = 0;
+            }
+        }
+    }
+
+    /**
+     * @return true if the failure is to be logged in full; otherwise it was counted and will be part of the next
+     * summary.
+     */
+    boolean onFailure(Subscription subscription, Throwable cause) {
+        synchronized (subscription) {
+            if (maxConsecutiveFailures > 0 && ++subscription.consecutiveFailures >= maxConsecutiveFailures) {
+                subscription.suspendedUntilMillis = System.currentTimeMillis() + suspendMillis;
+                // A single failure after the suspension suspends it again
+                subscription.consecutiveFailures = maxConsecutiveFailures - 1;
+                if (logSuspensions) {
+                    logger.log(Level.WARNING, "Suspending subscriber " + subscription.subscriber.getClass() + " for "
+                            + suspendMillis + " ms after " + maxConsecutiveFailures + " consecutive failures");
+                }
+            }
+            if (summaryIntervalMillis <= 0) {
+                return true;
+            }
+            if (!subscription.failureSummaryScheduled) {
+                // First failure of a summary interval
+                scheduleSummary(subscription);
+                return true;
+            }
+            subscription.suppressedFailures++;
+            subscription.lastSuppressedFailure = cause;
+            return false;
+        }
+    }
+
+    // Must be called in synchronized block
+    private void scheduleSummary(final Subscription subscription) {
+        subscription.failureSummaryScheduled = true;
+        SharedTimer.get().schedule(new Runnable() {
+            @Override
+            public void run() {
+                logSummary(subscription);
+            }
+        }, summaryIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void logSummary(Subscription subscription) {
+        int count;
+        Throwable lastFailure;
+        synchronized (subscription) {
+            count = subscription.suppressedFailures;
+            lastFailure = subscription.lastSuppressedFailure;
+            subscription.suppressedFailures = 0;
+            subscription.lastSuppressedFailure = null;
+            if (count > 0) {
+                // Still failing: keep suppressing for another interval
+                scheduleSummary(subscription);
+            } else {
+                subscription.failureSummaryScheduled = false;
+            }
+        }
+        if (count > 0 && logger.isLoggable(Level.SEVERE)) {
+            logger.log(Level.SEVERE, "Subscribing class " + subscription.subscriber.getClass() + " failed " + count
+                    + " more times in the last " + summaryIntervalMillis + " ms, last exception: " + lastFailure);
+        }
+    }
+}
@@ -24,15 +24,57 @@ public class SubscriberMethod {
     final Class<?> eventType;//事件类型
     final int priority;//响应优先级
     final boolean sticky;//是否是粘性事件
+    final boolean conflate;//是否合并主线程中排队的事件
+    final RateLimit rateLimit;//限流方式
+    final long rateLimitMillis;//限流时间窗口
+    final int batchSize;//批量响应的最大事件数，0表示不批量响应
+    final long batchMillis;//批量响应的最长等待时间
+    final String executorName;//执行响应方法的线程池名称，空表示默认线程池
     /** Used for efficient comparison */
     String methodString;
 
+    /**
+     * Used by generated subscriber indexes, which only contain the thread mode, priority and sticky flag. The other
+     * delivery options (conflation, rate limit, batching and executor) are read from the method's {@link Subscribe}
+     * annotation; if it is not available at runtime (e.g. stripped by ProGuard), the defaults apply.
+     */
     public SubscriberMethod(Method method, Class<?> eventType, ThreadMode threadMode, int priority, boolean sticky) {
         this.method = method;
         this.threadMode = threadMode;
         this.eventType = eventType;
         this.priority = priority;
         this.sticky = sticky;
+        Subscribe subscribe = method.getAnnotation(Subscribe.class);
+        if (subscribe != null) {
+            this.conflate = subscribe.conflate();
+            this.rateLimit = subscribe.rateLimit();
+            this.rateLimitMillis = subscribe.rateLimitMillis();
+            this.batchSize = subscribe.batchSize();
+            this.batchMillis = subscribe.batchMillis();
+            this.executorName = subscribe.executor();
+        } else {
+            this.conflate = false;
+            this.rateLimit = RateLimit.NONE;
+            this.rateLimitMillis = 0;
+            this.batchSize = 0;
+            this.batchMillis = 0;
+            this.executorName = "";
+        }
+    }
+
+    /** Used by reflection based lookup; takes the delivery options from the given annotation. */
+    SubscriberMethod(Method method, Class<?> eventType, Subscribe subscribe) {
+        this.method = method;
+        this.threadMode = subscribe.threadMode();
+        this.eventType = eventType;
+        this.priority = subscribe.priority();
+        this.sticky = subscribe.sticky();
+        this.conflate = subscribe.conflate();
+        this.rateLimit = subscribe.rateLimit();
+        this.rateLimitMillis = subscribe.rateLimitMillis();
+        this.batchSize = subscribe.batchSize();
+        this.batchMillis = subscribe.batchMillis();
+        this.executorName = subscribe.executor();
     }
 
     @Override
@@ -17,6 +17,9 @@ import org.greenrobot.eventbus.meta.SubscriberInfoIndex;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -86,6 +89,7 @@ class SubscriberMethodFinder {
 			if (findState.subscriberInfo != null) {
 				SubscriberMethod[] array = findState.subscriberInfo.getSubscriberMethods();
 				for (SubscriberMethod subscriberMethod : array) {
+					subscriberMethod = checkIndexedMethod(subscriberMethod);
 					if (findState.checkAdd(subscriberMethod.method, subscriberMethod.eventType)) {
 						findState.subscriberMethods.add(subscriberMethod);
 					}
@@ -180,13 +184,14 @@ class SubscriberMethodFinder {
 					Subscribe subscribeAnnotation = method.getAnnotation(Subscribe.class);
 					if (subscribeAnnotation != null) {
 						Class<?> eventType = parameterTypes[0];
+						if (subscribeAnnotation.batchSize() > 0) {
+							eventType = getBatchEventType(method, subscribeAnnotation);
+						}
 						//校验是否添加该方法
 						if (findState.checkAdd(method, eventType)) {
-							//线程模式
-							ThreadMode threadMode = subscribeAnnotation.threadMode();
+							checkRateLimit(method, subscribeAnnotation);
 							//订阅者的响应方法校验通过，添加到响应方法集合
-							findState.subscriberMethods.add(new SubscriberMethod(method, eventType, threadMode,
-									subscribeAnnotation.priority(), subscribeAnnotation.sticky()));
+							findState.subscriberMethods.add(new SubscriberMethod(method, eventType, subscribeAnnotation));
 						}
 					}
 				} else if (strictMethodVerification && method.isAnnotationPresent(Subscribe.class)) {
@@ -202,6 +207,60 @@ class SubscriberMethodFinder {
 		}
 	}
 
+	/**
+	 * Applies the checks of the reflection based lookup to the delivery options, which a generated index doesn't
+	 * contain and {@link SubscriberMethod} reads from the annotation. Batch methods get the List's element type as
+	 * event type.
+	 */
+	private SubscriberMethod checkIndexedMethod(SubscriberMethod subscriberMethod) {
+		if (subscriberMethod.rateLimit == RateLimit.NONE && subscriberMethod.batchSize == 0) {
+			return subscriberMethod;
+		}
+		Method method = subscriberMethod.method;
+		Subscribe subscribeAnnotation = method.getAnnotation(Subscribe.class);
+		checkRateLimit(method, subscribeAnnotation);
+		if (subscribeAnnotation.batchSize() > 0) {
+			return new SubscriberMethod(method, getBatchEventType(method, subscribeAnnotation), subscribeAnnotation);
+		}
+		return subscriberMethod;
+	}
+
+	private void checkRateLimit(Method method, Subscribe subscribeAnnotation) {
+		if (subscribeAnnotation.rateLimit() != RateLimit.NONE && subscribeAnnotation.rateLimitMillis() <= 0) {
+			String methodName = method.getDeclaringClass().getName() + "." + method.getName();
+			throw new EventBusException("@Subscribe method " + methodName + " uses rate limit "
+					+ subscribeAnnotation.rateLimit() + " but has no positive rateLimitMillis");
+		}
+	}
+
+	/** Checks the batch options and gets the event type from the List type argument of a batch subscriber method. */
+	private Class<?> getBatchEventType(Method method, Subscribe subscribeAnnotation) {
+		String methodName = method.getDeclaringClass().getName() + "." + method.getName();
+		ThreadMode threadMode = subscribeAnnotation.threadMode();
+		if (threadMode != ThreadMode.BACKGROUND && threadMode != ThreadMode.ASYNC) {
+			throw new EventBusException("Batch @Subscribe method " + methodName
+					+ " must use ThreadMode.BACKGROUND or ThreadMode.ASYNC");
+		} else if (subscribeAnnotation.batchMillis() <= 0) {
+			throw new EventBusException("Batch @Subscribe method " + methodName + " has no positive batchMillis");
+		} else if (subscribeAnnotation.rateLimit() != RateLimit.NONE) {
+			throw new EventBusException("Batch @Subscribe method " + methodName + " may not use a rate limit");
+		} else if (method.getParameterTypes()[0] != List.class) {
+			throw new EventBusException("Batch @Subscribe method " + methodName + " must take a List parameter");
+		}
+		Type parameterType = method.getGenericParameterTypes()[0];
+		if (parameterType instanceof ParameterizedType) {
+			Type typeArgument = ((ParameterizedType) parameterType).getActualTypeArguments()[0];
+			if (typeArgument instanceof WildcardType) {
+				typeArgument = ((WildcardType) typeArgument).getUpperBounds()[0];
+			}
+			if (typeArgument instanceof Class) {
+				return (Class<?>) typeArgument;
+			}
+		}
+		throw new EventBusException("Batch @Subscribe method " + methodName
+				+ " must declare the event type as type argument, e.g. List<MyEvent>");
+	}
+
 	static void clearCaches() {
 		METHOD_CACHE.clear();
 	}
@@ -23,6 +23,25 @@ final class Subscription {
      * {@link EventBus#invokeSubscriber(PendingPost)} to prevent race conditions.
      */
     volatile boolean active;
+    /**
+     * The queued main thread delivery of a conflating subscriber method ({@link Subscribe#conflate()}) that may still
+     * be replaced by a newer event. Guarded by the queue of the {@link MainThreadPoster}.
+     */
+    PendingPost conflatedPendingPost;
+    /** Not null if the subscriber method has a {@link Subscribe#rateLimit()}. */
+    RateLimiter rateLimiter;
+    /** Not null if the subscriber method receives batches of events, see {@link Subscribe#batchSize()}. */
+    EventBatcher batcher;
+    /** Poster of the subscription's named executor; null for the default posters. */
+    Poster namedExecutorPoster;
+
+    // Failure statistics of SubscriberFailureMonitor, guarded by this subscription
+    int consecutiveFailures;
+    int suppressedFailures;
+    Throwable lastSuppressedFailure;
+    boolean failureSummaryScheduled;
+    /** Deliveries are skipped until this time once the circuit breaker opened. */
+    volatile long suspendedUntilMillis;
 
     Subscription(Object subscriber, SubscriberMethod subscriberMethod) {
         this.subscriber = subscriber;
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The subscriptions of an event type, ordered by priority. Tracks whether any subscriber may cancel the delivery of
+ * events ({@link EventBus#cancelEventDelivery(Object)}), which is only allowed for {@link ThreadMode#POSTING}
+ * subscribers. Dispatching skips the bookkeeping needed for cancellation for lists without such subscribers, and for
+ * the other subscriptions of lists with some. As POSTING is the default thread mode, this mostly helps event types
+ * handled in the main thread, background or async threads; it doesn't detect whether a subscriber actually cancels.
+ */
+final class SubscriptionList extends CopyOnWriteArrayList<Subscription> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * True if any subscription has thread mode POSTING. Set before such a subscription is added, so dispatches
+     * iterating a snapshot containing it see the flag when reading it after taking the snapshot.
+     */
+    volatile boolean mayCancel;
+
+    /** Subscriptions are only added using this method. */
+    @Override
+    public void add(int index, Subscription subscription) {
+        if (subscription.subscriberMethod.threadMode == ThreadMode.POSTING) {
+            mayCancel = true;
+        }
+        super.add(index, subscription);
+    }
+
+    /** Must be called after subscriptions were removed. */
+    void updateMayCancel() {
+        for (Subscription subscription : this) {
+            if (subscription.subscriberMethod.threadMode == ThreadMode.POSTING) {
+                return;
+            }
+        }
+        mayCancel = false;
+    }
+}
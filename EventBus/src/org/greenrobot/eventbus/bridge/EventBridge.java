@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus.bridge;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.EventBusException;
+import org.greenrobot.eventbus.EventJournal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Bridges selected event types between the EventBus instances of two processes on the same host. Events of the
+ * registered types posted to the local bus are encoded by their {@link EventCodec} and sent to the peer, which posts
+ * them to its bus; and vice versa. Events received from the peer are not sent back.
+ * <p/>
+ * Usage: one process calls {@link #listen(EventBus, int)}, the other {@link #connect(EventBus, int)}. Both register
+ * the same types with the same IDs using {@link #addType(int, Class, EventCodec)} and call {@link #start()}. Both must
+ * use the same buffer size, which limits the size of an encoded event.
+ * <p/>
+ * Encoded events are appended to a buffer by the posting threads and written in batches by a single I/O thread using
+ * non-blocking NIO, which also reads and posts incoming events. If the peer does not keep up and the buffer is full,
+ * posting threads wait. Only events of exactly the registered classes are bridged.
+ * <p/>
+ * The bridge receives posted events as a journal of the bus (see {@link EventBus#addJournal(EventJournal)}), so
+ * events are bridged whether or not they have local subscribers, and the dispatch on the local bus is unaffected.
+ * Events that cannot be bridged, e.g. after the bridge was closed or if their codec failed, are logged and skipped;
+ * they are still posted locally.
+ */
+public class EventBridge implements Closeable, Runnable {
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    /** Frame: length of the rest of the frame (int), type ID (int), payload. */
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_TYPE_ID = 0xffff;
+
+    /** Listens on the loopback interface and waits for the peer to connect. */
+    public static EventBridge listen(EventBus eventBus, int port) throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().bind(new InetSocketAddress(InetAddress.getByName(null), port));
+            return new EventBridge(eventBus, serverChannel.accept(), DEFAULT_BUFFER_SIZE);
+        } finally {
+            serverChannel.close();
+        }
+    }
+
+    /** Connects to a peer listening on the loopback interface. */
+    public static EventBridge connect(EventBus eventBus, int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getByName(null), port));
+        return new EventBridge(eventBus, channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    private static class Registration {
+        final int typeId;
+        final EventCodec<Object> codec;
+
+        Registration(int typeId, EventCodec<Object> codec) {
+            this.typeId = typeId;
+            this.codec = codec;
+        }
+    }
+
+    private final EventBus eventBus;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final Map<Class<?>, Registration> registrationsByType = new ConcurrentHashMap<>();
+    private Registration[] registrationsById = new Registration[16];
+
+    private final Object writeLock = new Object();
+    /** Filled by posting threads, guarded by writeLock. */
+    private ByteBuffer pendingWrites;
+    /** Written by the I/O thread. */
+    private ByteBuffer outgoing;
+    private final ByteBuffer incoming;
+    /** Frames must fit into the peer's incoming buffer, which has the same size. */
+    private final int maxFrameSize;
+
+    /** Events received from the peer currently posted by the I/O thread; those must not be sent back. */
+    private final List<Object> receivedEvents = new ArrayList<>();
+    private final Set<Object> receivedEventSet = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    private volatile Thread ioThread;
+    private volatile boolean closed;
+
+    /** Receives the events posted to the local bus; a subscriber to Object would slow down dispatching all events. */
+    private final EventJournal sender = new EventJournal() {
+        @Override
+        public void append(Object event) {
+            Registration registration = registrationsByType.get(event.getClass());
+            if (registration == null) {
+                return;
+            }
+            boolean onIoThread = Thread.currentThread() == ioThread;
+            if (onIoThread && receivedEventSet.contains(event)) {
+                return;
+            }
+            try {
+                send(registration, event, onIoThread);
+            } catch (EventBusException e) {
+                // Not the poster's fault; the event is still posted locally
+                eventBus.getLogger().log(Level.SEVERE, "Could not bridge event " + event.getClass(), e);
+            }
+        }
+    };
+
+    public EventBridge(EventBus eventBus, SocketChannel channel, int bufferSize) throws IOException {
+        this.eventBus = eventBus;
+        this.channel = channel;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        selector = Selector.open();
+        pendingWrites = ByteBuffer.allocateDirect(bufferSize);
+        outgoing = ByteBuffer.allocateDirect(bufferSize);
+        outgoing.flip();
+        incoming = ByteBuffer.allocateDirect(bufferSize);
+        maxFrameSize = bufferSize;
+    }
+
+    /**
+     * Bridges events of the given class. Both peers must use the same type ID (0 to 65535) for a class. Must be called
+     * before {@link #start()}.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> EventBridge addType(int typeId, Class<T> eventType, EventCodec<T> codec) {
+        if (ioThread != null) {
+            throw new EventBusException("Types must be added before the bridge is started");
+        } else if (typeId < 0 || typeId > MAX_TYPE_ID) {
+            throw new EventBusException("Type ID out of range: " + typeId);
+        }
+        if (typeId >= registrationsById.length) {
+            registrationsById = Arrays.copyOf(registrationsById, Math.max(typeId + 1, registrationsById.length * 2));
+        } else if (registrationsById[typeId] != null) {
+            throw new EventBusException("Type ID " + typeId + " already used");
+        }
+        Registration registration = new Registration(typeId, (EventCodec<Object>) codec);
+        registrationsById[typeId] = registration;
+        registrationsByType.put(eventType, registration);
+        return this;
+    }
+
+    /** Starts the I/O thread and begins to bridge events. */
+    public synchronized void start() {
+        if (ioThread != null) {
+            throw new EventBusException("Already started");
+        }
+        ioThread = new Thread(this, "EventBus bridge");
+        ioThread.setDaemon(true);
+        ioThread.start();
+        eventBus.addJournal(sender);
+    }
+
+    private void send(Registration registration, Object event, boolean onIoThread) {
+        synchronized (writeLock) {
+            while (true) {
+                if (closed) {
+                    throw new EventBusException("Bridge is closed");
+                }
+                ByteBuffer buffer = pendingWrites;
+                int start = buffer.position();
+                int frameLimit = Math.min(buffer.capacity(), start + maxFrameSize);
+                if (frameLimit - start > FRAME_HEADER_SIZE) {
+                    buffer.position(start + FRAME_HEADER_SIZE);
+                    buffer.limit(frameLimit);
+                    try {
+                        registration.codec.encode(event, buffer);
+                        buffer.putInt(start, buffer.position() - start - 4);
+                        buffer.putInt(start + 4, registration.typeId);
+                        if (start == 0) {
+                            // The I/O thread may wait for incoming data only
+                            selector.wakeup();
+                        }
+                        return;
+                    } catch (BufferOverflowException e) {
+                        buffer.position(start);
+                        if (frameLimit - start == maxFrameSize) {
+                            throw new EventBusException("Event " + event.getClass() + " exceeds the buffer size");
+                        }
+                    } catch (RuntimeException e) {
+                        // Discard the partially written frame, which would corrupt the stream
+                        buffer.position(start);
+                        throw new EventBusException("Could not encode event " + event.getClass(), e);
+                    } finally {
+                        buffer.limit(buffer.capacity());
+                    }
+                }
+                if (onIoThread) {
+                    // Subscribers of received events posted this; waiting for ourselves would dead lock
+                    ByteBuffer bigger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                    buffer.flip();
+                    bigger.put(buffer);
+                    pendingWrites = bigger;
+                } else {
+                    try {
+                        writeLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new EventBusException("Interrupted while waiting to send " + event.getClass(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            while (!closed) {
+                boolean flushed = flush();
+                key.interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                if (selector.select() > 0) {
+                    selector.selectedKeys().clear();
+                    if (key.isReadable() && !read()) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                eventBus.getLogger().log(Level.SEVERE, "Event bridge failed", e);
+            }
+        } finally {
+            close();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    /** @return true if all pending data was written. */
+    private boolean flush() throws IOException {
+        while (true) {
+            if (!outgoing.hasRemaining()) {
+                synchronized (writeLock) {
+                    if (pendingWrites.position() == 0) {
+                        return true;
+                    }
+                    ByteBuffer filled = pendingWrites;
+                    outgoing.clear();
+                    pendingWrites = outgoing;
+                    filled.flip();
+                    outgoing = filled;
+                    writeLock.notifyAll();
+                }
+            }
+            channel.write(outgoing);
+            if (outgoing.hasRemaining()) {
+                return false;
+            }
+        }
+    }
+
+    /** @return false if the peer closed the connection. */
+    private boolean read() throws IOException {
+        int count = channel.read(incoming);
+        if (count < 0) {
+            return false;
+        }
+        incoming.flip();
+        while (incoming.remaining() >= 4) {
+            int position = incoming.position();
+            int frameLength = incoming.getInt(position);
+            if (frameLength < 4 || frameLength > incoming.capacity() - 4) {
+                throw new IOException("Corrupt frame length: " + frameLength);
+            } else if (incoming.remaining() < frameLength + 4) {
+                break;
+            }
+            int typeId = incoming.getInt(position + 4);
+            Registration registration = typeId < registrationsById.length ? registrationsById[typeId] : null;
+            if (registration == null) {
+                throw new IOException("Unknown type ID: " + typeId);
+            }
+            int limit = incoming.limit();
+            int frameEnd = position + 4 + frameLength;
+            incoming.position(position + FRAME_HEADER_SIZE);
+            incoming.limit(frameEnd);
+            receivedEvents.add(registration.codec.decode(incoming));
+            incoming.limit(limit);
+            incoming.position(frameEnd);
+        }
+        incoming.compact();
+        if (!receivedEvents.isEmpty()) {
+            receivedEventSet.addAll(receivedEvents);
+            try {
+                eventBus.postAll(receivedEvents);
+            } finally {
+                receivedEvents.clear();
+                receivedEventSet.clear();
+            }
+        }
+        return true;
+    }
+
+    /** Stops bridging, removes the bridge's journal from the bus and closes the connection. */
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writeLock.notifyAll();
+        }
+        eventBus.removeJournal(sender);
+        selector.wakeup();
+        try {
+            channel.close();
+            if (ioThread == null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            eventBus.getLogger().log(Level.WARNING, "Could not close event bridge", e);
+        }
+    }
+}
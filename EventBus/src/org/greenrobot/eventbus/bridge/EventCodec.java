@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus.bridge;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of events of one type. Codecs are called concurrently from multiple threads and thus should be
+ * stateless.
+ *
+ * @param <T> the event type
+ */
+public interface EventCodec<T> {
+    /**
+     * Writes the event at the buffer's position. If the event does not fit into the remaining space, a
+     * {@link java.nio.BufferOverflowException} must be thrown (like the relative put methods of ByteBuffer do); the
+     * caller will try again with more space. If encoding fails with another exception, the event is not bridged.
+     */
+    void encode(T event, ByteBuffer buffer);
+
+    /** Reads an event from the buffer, which is limited to the bytes written by {@link #encode(Object, ByteBuffer)}. */
+    T decode(ByteBuffer buffer);
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2012-2016 Markus Junginger, greenrobot (http://greenrobot.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.greenrobot.eventbus.journal;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.EventBusException;
+import org.greenrobot.eventbus.EventJournal;
+import org.greenrobot.eventbus.Logger;
+import org.greenrobot.eventbus.PooledEvent;
+import org.greenrobot.eventbus.bridge.EventCodec;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Append-only journal of selected event types, stored in segmented memory-mapped files. Posting threads only hand
+ * events over to a dedicated writer thread, which encodes them using {@link EventCodec}s and commits all events
+ * collected in the meantime at once (group commit). Recorded events can be re-posted using the replay methods.
+ * <p/>
+ * Usage: create the journal, add the event types to record, pass it to
+ * {@link org.greenrobot.eventbus.EventBusBuilder#journal(EventJournal)}, and {@link #start(Logger)} it with the logger
+ * of the bus. Events posted before the journal was started are not recorded. The same type IDs must be used when the
+ * journal is opened again for replay.
+ * <p/>
+ * Events failing to encode are logged and skipped; the writer thread only stops on I/O errors, after which no events
+ * are recorded anymore.
+ * <p/>
+ * Each record is written as: length of the rest of the record (int), sequence number (long), timestamp in
+ * milliseconds (long), type ID (int), payload. The length is written last, so a record is either complete or not
+ * visible at all after a crash. Segment files are named by the sequence number of their first record.
+ */
+public class MappedEventJournal implements EventJournal, Closeable, Runnable {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String SUFFIX = ".journal";
+    private static final int RECORD_HEADER_SIZE = 24;
+    private static final int REPLAY_CHUNK_SIZE = 1024;
+
+    private static class Registration {
+        final int typeId;
+        final EventCodec<Object> codec;
+
+        Registration(int typeId, EventCodec<Object> codec) {
+            this.typeId = typeId;
+            this.codec = codec;
+        }
+    }
+
+    private static class Entry {
+        final Object event;
+        final Registration registration;
+        final long timestamp;
+
+        Entry(Object event, Registration registration, long timestamp) {
+            this.event = event;
+            this.registration = registration;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final Map<Class<?>, Registration> registrationsByType = new ConcurrentHashMap<>();
+    private final Map<Integer, Registration> registrationsById = new ConcurrentHashMap<>();
+
+    /** Events of replaying threads are not recorded again. */
+    private final ThreadLocal<Boolean> replaying = new ThreadLocal<>();
+
+    private final Object lock = new Object();
+    /** Guarded by lock. */
+    private List<Entry> pendingEntries = new ArrayList<>();
+    private boolean closed;
+
+    /** Only accessed by the writer thread (after start). */
+    private Logger logger;
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private volatile Thread writerThread;
+
+    public MappedEventJournal(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedEventJournal(File directory, int segmentSize) {
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new EventBusException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /** Records events of the given class using the given codec. Type IDs must stay the same for existing journals. */
+    @SuppressWarnings("unchecked")
+    public <T> MappedEventJournal addType(int typeId, Class<T> eventType, EventCodec<T> codec) {
+        Registration registration = new Registration(typeId, (EventCodec<Object>) codec);
+        if (registrationsById.containsKey(typeId)) {
+            throw new EventBusException("Type ID " + typeId + " already used");
+        }
+        registrationsById.put(typeId, registration);
+        registrationsByType.put(eventType, registration);
+        return this;
+    }
+
+    /**
+     * Opens the latest segment (recovering the last complete record) and starts the writer thread.
+     *
+     * @param logger receives failures of the writer thread, usually {@link EventBus#getLogger()}
+     */
+    public synchronized void start(Logger logger) throws IOException {
+        if (writerThread != null) {
+            throw new EventBusException("Already started");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+        File[] segmentFiles = listSegmentFiles();
+        if (segmentFiles.length > 0) {
+            File lastFile = segmentFiles[segmentFiles.length - 1];
+            nextSequence = getFirstSequence(lastFile);
+            segment = map(lastFile, FileChannel.MapMode.READ_WRITE);
+            while (segment.remaining() >= 4) {
+                int length = segment.getInt(segment.position());
+                if (length <= 0 || length > segment.remaining() - 4) {
+                    break;
+                }
+                segment.position(segment.position() + 4 + length);
+                nextSequence++;
+            }
+        } else {
+            openSegment();
+        }
+        this.logger = logger;
+        writerThread = new Thread(this, "EventBus journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void append(Object event) {
+        Registration registration = registrationsByType.get(event.getClass());
+        if (registration == null || replaying.get() != null || writerThread == null) {
+            // Not recorded, or not started yet: nothing would bound the pending entries
+            return;
+        }
+        Entry entry = new Entry(event, registration, System.currentTimeMillis());
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (event instanceof PooledEvent) {
+                // Keeps the event from being recycled before it is written
+                ((PooledEvent) event).retain();
+            }
+            pendingEntries.add(entry);
+            if (pendingEntries.size() == 1) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (pendingEntries.isEmpty() && !closed) {
+                        lock.wait();
+                    }
+                    if (pendingEntries.isEmpty()) {
+                        return;
+                    }
+                    List<Entry> swap = pendingEntries;
+                    pendingEntries = entries;
+                    entries = swap;
+                }
+                for (int i = 0; i < entries.size(); i++) {
+                    Entry entry = entries.get(i);
+                    try {
+                        write(entry);
+                    } catch (RuntimeException e) {
+                        logger.log(Level.SEVERE, "Could not record event " + entry.event.getClass(), e);
+                    } finally {
+                        release(entry);
+                    }
+                }
+                entries.clear();
+                // Group commit: one sync for all entries collected while the previous batch was written
+                segment.force();
+            }
+        } catch (InterruptedException e) {
+            logger.log(Level.WARNING, "Journal writer was interrupted", e);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Journal writer failed", e);
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                for (int i = 0; i < pendingEntries.size(); i++) {
+                    release(pendingEntries.get(i));
+                }
+                pendingEntries.clear();
+            }
+        }
+    }
+
+    private static void release(Entry entry) {
+        if (entry.event instanceof PooledEvent) {
+            ((PooledEvent) entry.event).release();
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        while (true) {
+            int start = segment.position();
+            if (segment.remaining() > RECORD_HEADER_SIZE) {
+                segment.position(start + 4);
+                segment.putLong(nextSequence);
+                segment.putLong(entry.timestamp);
+                segment.putInt(entry.registration.typeId);
+                try {
+                    entry.registration.codec.encode(entry.event, segment);
+                    int end = segment.position();
+                    segment.putInt(start, end - start - 4);
+                    nextSequence++;
+                    return;
+                } catch (BufferOverflowException e) {
+                    segment.position(start);
+                    if (start == 0) {
+                        throw new IOException("Event " + entry.event.getClass() + " exceeds the segment size");
+                    }
+                } catch (RuntimeException e) {
+                    // Clear the partial record, so recovery does not mistake parts of it for the length of a record
+                    int end = segment.position();
+                    for (int i = start; i < end; i++) {
+                        segment.put(i, (byte) 0);
+                    }
+                    segment.position(start);
+                    throw e;
+                }
+            }
+            segment.force();
+            openSegment();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        File file = new File(directory, String.format("%020d%s", nextSequence, SUFFIX));
+        segment = map(file, FileChannel.MapMode.READ_WRITE);
+    }
+
+    private MappedByteBuffer map(File file, FileChannel.MapMode mode) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r"
+                : "rw");
+        try {
+            long size = mode == FileChannel.MapMode.READ_ONLY ? randomAccessFile.length() : segmentSize;
+            // The mapping stays valid after closing the file
+            return randomAccessFile.getChannel().map(mode, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private File[] listSegmentFiles() {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        // Zero padded sequence numbers: name order is sequence order
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static long getFirstSequence(File segmentFile) {
+        String name = segmentFile.getName();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    /** Re-posts the recorded events with sequence numbers from (inclusive) to (exclusive) in the calling thread. */
+    public void replay(EventBus eventBus, long fromSequence, long toSequence) throws IOException {
+        replay(eventBus, fromSequence, toSequence, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Re-posts the recorded events with timestamps from (inclusive) to (exclusive) in the calling thread. */
+    public void replayTimeRange(EventBus eventBus, long fromMillis, long toMillis) throws IOException {
+        replay(eventBus, 0, Long.MAX_VALUE, fromMillis, toMillis);
+    }
+
+    private void replay(EventBus eventBus, long fromSequence, long toSequence, long fromMillis, long toMillis)
+            throws IOException {
+        File[] segmentFiles = listSegmentFiles();
+        List<Object> events = new ArrayList<>(REPLAY_CHUNK_SIZE);
+        replaying.set(Boolean.TRUE);
+        try {
+            for (int i = 0; i < segmentFiles.length; i++) {
+                if (getFirstSequence(segmentFiles[i]) >= toSequence) {
+                    break;
+                } else if (i + 1 < segmentFiles.length && getFirstSequence(segmentFiles[i + 1]) <= fromSequence) {
+                    continue;
+                }
+                MappedByteBuffer buffer = map(segmentFiles[i], FileChannel.MapMode.READ_ONLY);
+                while (buffer.remaining() >= 4) {
+                    int length = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    int recordEnd = buffer.position() + length;
+                    long sequence = buffer.getLong();
+                    long timestamp = buffer.getLong();
+                    int typeId = buffer.getInt();
+                    if (sequence >= toSequence) {
+                        break;
+                    }
+                    Registration registration = registrationsById.get(typeId);
+                    if (sequence >= fromSequence && timestamp >= fromMillis && timestamp < toMillis
+                            && registration != null) {
+                        buffer.limit(recordEnd);
+                        events.add(registration.codec.decode(buffer));
+                        buffer.limit(buffer.capacity());
+                        if (events.size() == REPLAY_CHUNK_SIZE) {
+                            eventBus.postAll(events);
+                            events.clear();
+                        }
+                    }
+                    buffer.position(recordEnd);
+                }
+            }
+            if (!events.isEmpty()) {
+                eventBus.postAll(events);
+            }
+        } finally {
+            replaying.remove();
+        }
+    }
+
+    /** Writes all pending events and stops the writer thread. */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+            thread = writerThread;
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
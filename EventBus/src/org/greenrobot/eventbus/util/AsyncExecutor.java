@@ -16,13 +16,13 @@
 package org.greenrobot.eventbus.util;
 
 import android.app.Activity;
-import android.util.Log;
 
 import org.greenrobot.eventbus.EventBus;
 
 import java.lang.reflect.Constructor;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.logging.Level;
 
 /**
  * Executes an {@link RunnableEx} using a thread pool. Thrown exceptions are propagated by posting failure events of any
@@ -119,7 +119,7 @@ public class AsyncExecutor {
                     try {
                         event = failureEventConstructor.newInstance(e);
                     } catch (Exception e1) {
-                        Log.e(EventBus.TAG, "Original exception:", e);
+                        eventBus.getLogger().log(Level.SEVERE, "Original exception:", e);
                         throw new RuntimeException("Could not create failure event", e1);
                     }
                     if (event instanceof HasExecutionScope) {